@@ -0,0 +1,123 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the small building blocks: one 8-byte block, the key schedule,
+ * the mod 65537 kernels and the byte/short codec.
+ *
+ * Lives in the Encryption package so it can reach the package-private and
+ * protected helpers directly.
+ *
+ * @author User
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockBenchmark {
+
+    private IDEA cipher;
+    private byte[] key;
+    private byte[] block;
+    private int[] shorts;
+    private int a;
+    private int b;
+
+    @Setup
+    public void setUp() {
+        cipher = new IDEA("isTheCryptidWhaleReallyHere");
+        key = Encryption.makeKey("isTheCryptidWhaleReallyHere", IDEAKeySchedule.KEY_SIZE);
+        block = "8 bytes!".getBytes(StandardCharsets.US_ASCII);
+        shorts = new int[4];
+        Random random = new Random(42);
+        a = random.nextInt(0x10000);
+        b = random.nextInt(0x10000);
+    }
+
+    @Benchmark
+    public byte[] encryptBlock() {
+        cipher.encryptBlocks(block, 0, 8, block, 0);
+        return block;
+    }
+
+    @Benchmark
+    public byte[] decryptBlock() {
+        cipher.decryptBlocks(block, 0, 8, block, 0);
+        return block;
+    }
+
+    @Benchmark
+    public long ideaRound() {
+        return IDEA.idea(0x0123456789abcdefL, cipher.getKeySchedule().encryptKeys());
+    }
+
+    @Benchmark
+    public IDEAKeySchedule keySchedule() {
+        return new IDEAKeySchedule(key);
+    }
+
+    @Benchmark
+    public int[] keyScheduleWithDecryptKeys() {
+        return new IDEAKeySchedule(key).decryptKeys();
+    }
+
+    @Benchmark
+    public int mulFast() {
+        return IDEAKernel.mulFast(a, b);
+    }
+
+    @Benchmark
+    public int mulReference() {
+        return IDEAKernel.mulReference(a, b);
+    }
+
+    @Benchmark
+    public int mulinvFast() {
+        return IDEAKernel.mulinvFast(a);
+    }
+
+    @Benchmark
+    public int mulinvReference() {
+        return IDEAKernel.mulinvReference(a);
+    }
+
+    @Benchmark
+    public int[] squashBytesToShorts() {
+        Utils.squashBytesToShorts(block, 0, shorts, 0, 4);
+        return shorts;
+    }
+
+    @Benchmark
+    public long squashBytesToLong() {
+        return Utils.squashBytesToLong(block, 0);
+    }
+
+    @Benchmark
+    public long codecBytes() {
+        return BlockCodec.BYTES.getLong(block, 0);
+    }
+
+    @Benchmark
+    public long codecSelected() {
+        return BlockCodec.CODEC.getLong(block, 0);
+    }
+}
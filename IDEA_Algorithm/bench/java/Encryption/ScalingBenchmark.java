@@ -0,0 +1,98 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi-threaded scaling: one shared cipher used from 1, 2, 4 and all
+ * available threads, plus the work RunIDEA does per request (cache lookup,
+ * encrypt and decrypt of a form-sized message).
+ *
+ * @author User
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+    /**
+     * The cipher every thread shares.
+     */
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        IDEA cipher;
+
+        @Setup
+        public void setUp() {
+            cipher = KeyScheduleCache.shared().cipher("isTheCryptidWhaleReallyHere");
+        }
+    }
+
+    /**
+     * Each thread's own 4 KB buffer.
+     */
+    @State(Scope.Thread)
+    public static class Local {
+
+        byte[] data = new byte[4096];
+
+        @Setup
+        public void setUp() {
+            new Random(Thread.currentThread().getId()).nextBytes(data);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] encrypt4k_1thread(Shared shared, Local local) {
+        return encrypt(shared, local);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public byte[] encrypt4k_2threads(Shared shared, Local local) {
+        return encrypt(shared, local);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] encrypt4k_4threads(Shared shared, Local local) {
+        return encrypt(shared, local);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] encrypt4k_maxThreads(Shared shared, Local local) {
+        return encrypt(shared, local);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String servletRoundTrip_maxThreads() {
+        IDEA cipher = KeyScheduleCache.shared().cipher("isTheCryptidWhaleReallyHere");
+        return cipher.decrypt(cipher.encrypt("Your Message to be Encrypted"));
+    }
+
+    private static byte[] encrypt(Shared shared, Local local) {
+        shared.cipher.encryptBlocks(local.data, 0, local.data.length, local.data, 0);
+        return local.data;
+    }
+}
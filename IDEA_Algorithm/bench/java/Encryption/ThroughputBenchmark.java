@@ -0,0 +1,129 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk throughput at several message sizes. Scores are operations per second;
+ * multiply by the size parameter for bytes per second.
+ *
+ * @author User
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Thread)
+public class ThroughputBenchmark {
+
+    @Param({"64", "4096", "1048576", "67108864"})
+    public int size;
+
+    private IDEA cipher;
+    private CTRMode ctr;
+    private CBCMode cbc;
+    private EAXMode eax;
+    private byte[] nonce;
+    private byte[] data;
+    private byte[] out;
+    private String text;
+    private String cipherText;
+    private long[] blocks;
+
+    @Setup
+    public void setUp() {
+        cipher = new IDEA("isTheCryptidWhaleReallyHere");
+        ctr = new CTRMode(cipher.getKeySchedule());
+        cbc = new CBCMode(cipher.getKeySchedule());
+        eax = new EAXMode(cipher.getKeySchedule());
+        nonce = new byte[EAXMode.NONCE_SIZE];
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        out = new byte[size];
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        text = new String(chars);
+        cipherText = cipher.encrypt(text);
+        blocks = new long[size / 8];
+    }
+
+    @Benchmark
+    public byte[] encryptBlocks() {
+        cipher.encryptBlocks(data, 0, size, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] decryptBlocks() {
+        cipher.decryptBlocks(data, 0, size, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] ctr() {
+        ctr.process(42L, data, 0, size, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] cbcEncrypt() {
+        cbc.encryptBlocks(42L, data, 0, size, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] cbcDecrypt() {
+        cbc.decryptBlocks(42L, data, 0, size, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] eaxEncrypt() {
+        return eax.encrypt(nonce, null, data, 0, size);
+    }
+
+    @Benchmark
+    public long[] engineSelected() {
+        IDEAInterleaved.ENGINE.idea(blocks, 0, blocks.length, cipher.getKeySchedule().encryptKeys());
+        return blocks;
+    }
+
+    @Benchmark
+    public long[] engineScalar() {
+        IDEAInterleaved.SCALAR.idea(blocks, 0, blocks.length, cipher.getKeySchedule().encryptKeys());
+        return blocks;
+    }
+
+    @Benchmark
+    public String encryptString() {
+        return cipher.encrypt(text);
+    }
+
+    @Benchmark
+    public String decryptString() {
+        return cipher.decrypt(cipherText);
+    }
+
+    @Benchmark
+    public byte[] utf8Encode() {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
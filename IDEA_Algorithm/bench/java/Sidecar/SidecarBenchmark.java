@@ -0,0 +1,107 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Sidecar;
+
+import Encryption.TenantKeyStore;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The sidecar over loopback: a server in the same JVM, one client connection
+ * per benchmark thread. roundTrip waits for each answer before sending the
+ * next; pipelined keeps {@value #DEPTH} requests in flight. Scores are
+ * requests per second; run with -t to load several connections at once.
+ *
+ * @author User
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class SidecarBenchmark {
+
+    static final int DEPTH = 16;
+    static final int KEY_ID = 1;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        SidecarServer server;
+        int port;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            TenantKeyStore keys = new TenantKeyStore(KEY_ID + 1);
+            keys.put(KEY_ID, "isTheCryptidWhaleReallyHere");
+            server = new SidecarServer(keys, Runtime.getRuntime().availableProcessors());
+            port = server.start(new InetSocketAddress("127.0.0.1", 0));
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        @Param({"64", "4096"})
+        public int size;
+
+        SidecarClient client;
+        byte[] data;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final CompletableFuture<byte[]>[] futures = new CompletableFuture[DEPTH];
+
+        @Setup(Level.Trial)
+        public void connect(Server server) throws IOException {
+            client = new SidecarClient("127.0.0.1", server.port);
+            data = new byte[size];
+            new Random(42).nextBytes(data);
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] roundTrip(Client c) throws IOException {
+        return c.client.encrypt(KEY_ID, c.data);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPTH)
+    public int pipelined(Client c) {
+        for (int i = 0; i < DEPTH; i++) {
+            c.futures[i] = c.client.encryptAsync(KEY_ID, c.data, 0, c.data.length);
+        }
+        int total = 0;
+        for (int i = 0; i < DEPTH; i++) {
+            total += c.futures[i].join().length;
+        }
+        return total;
+    }
+}
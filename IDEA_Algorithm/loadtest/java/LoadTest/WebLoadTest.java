@@ -0,0 +1,434 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package LoadTest;
+
+import Servlet.ApiIDEA;
+import Servlet.MetricsIDEA;
+import Servlet.RunIDEA;
+import Servlet.StreamIDEA;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+
+/**
+ * End-to-end load test of the web path. Boots the application's servlets in
+ * an embedded Tomcat on a loopback port (or targets a running server given
+ * with -url), drives one of the endpoints from a number of client threads
+ * over keep-alive connections, and reports throughput and p50/p99/p999
+ * latency for every payload size.
+ *
+ * By default each client sends its next request as soon as the last one is
+ * answered (closed loop). That measures capacity, but not latency under a
+ * given load: while the server stalls, the clients stop sending, so the
+ * requests that would have queued behind the stall are never measured
+ * (coordinated omission) and the high percentiles come out too low. For
+ * latency, give a fixed total rate with -rate: requests are then scheduled
+ * at even intervals whatever the server does, and each latency is measured
+ * from the request's intended start, so time spent waiting behind a slow
+ * response counts.
+ *
+ * <pre>
+ *   ant loadtest -Dtomcat.lib.dir=/path/to/tomcat-embed -Dloadtest.args="-threads 16 -sizes 64,4096"
+ * </pre>
+ *
+ * Options:
+ * <ul>
+ * <li>-target runidea|api|batch: the form POST to /RunIDEA (the default),
+ *     a raw POST to /api/encrypt, or a 16-message POST to /api/batch/encrypt.</li>
+ * <li>-threads n: concurrent clients, each with its own connection (default 8).</li>
+ * <li>-sizes a,b,...: payload sizes in bytes, one run each (default 16,1024,16384).</li>
+ * <li>-duration s, -warmup s: measured and discarded seconds per size (default 10 and 2).</li>
+ * <li>-rate r: requests per second over all clients, sent on a fixed schedule;
+ *     0 runs closed loop (the default). A client that falls behind sends at
+ *     once, and the lag shows in its latencies.</li>
+ * <li>-keys n: for the api targets, the number of distinct keys sent round-robin in
+ *     X-Idea-Key; 1 keeps the schedule cache hot, 0 sends a fresh key every time
+ *     (default 1). RunIDEA always uses its fixed key.</li>
+ * <li>-cookies: clients keep their session cookie. By default every RunIDEA
+ *     request starts a new session, as a form posted without cookies does.</li>
+ * <li>-url base: load a running deployment (e.g. http://host:8080/IDEA_Algorithm)
+ *     instead of the embedded container.</li>
+ * </ul>
+ *
+ * Throughput counts only the requests answered before the end of the
+ * measured period. Redirects are not followed: the 302 from RunIDEA is the
+ * response measured.
+ * With the embedded container the number of live sessions is printed after
+ * each run, which is where session growth shows up.
+ *
+ * @author User
+ */
+public final class WebLoadTest {
+
+    /**
+     * Messages per request for the batch target.
+     */
+    private static final int BATCH_MESSAGES = 16;
+
+    private final Options options;
+    private final AtomicLong keyCounter = new AtomicLong();
+
+    private WebLoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Tomcat tomcat = null;
+        Context context = null;
+        String base = options.url;
+        if (base == null) {
+            File dir = Files.createTempDirectory("idea-loadtest").toFile();
+            tomcat = new Tomcat();
+            tomcat.setBaseDir(dir.getAbsolutePath());
+            tomcat.setPort(0);
+            tomcat.getConnector(); // Creates the default HTTP connector
+            context = deploy(tomcat, dir);
+            tomcat.start();
+            base = "http://127.0.0.1:" + tomcat.getConnector().getLocalPort();
+        }
+        try {
+            new WebLoadTest(options).run(base, context);
+        } finally {
+            if (tomcat != null) {
+                tomcat.stop();
+                tomcat.destroy();
+            }
+        }
+    }
+
+    /**
+     * Registers the servlets with the same mappings as web.xml.
+     */
+    private static Context deploy(Tomcat tomcat, File dir) {
+        Context context = tomcat.addContext("", dir.getAbsolutePath());
+        Tomcat.addServlet(context, "RunIDEA", new RunIDEA());
+        context.addServletMappingDecoded("/RunIDEA", "RunIDEA");
+        Tomcat.addServlet(context, "StreamIDEA", new StreamIDEA()).setAsyncSupported(true);
+        context.addServletMappingDecoded("/stream/*", "StreamIDEA");
+        Tomcat.addServlet(context, "ApiIDEA", new ApiIDEA());
+        context.addServletMappingDecoded("/api/*", "ApiIDEA");
+        Tomcat.addServlet(context, "MetricsIDEA", new MetricsIDEA()).setLoadOnStartup(1);
+        context.addServletMappingDecoded("/metrics", "MetricsIDEA");
+        context.setSessionTimeout(30);
+        return context;
+    }
+
+    private void run(String base, Context context) throws Exception {
+        System.out.printf("target=%s threads=%d warmup=%ds duration=%ds keys=%d cookies=%s url=%s%n",
+                options.target, options.threads, options.warmup, options.duration, options.keys, options.cookies, base);
+        if (options.rate == 0) {
+            System.out.println("closed loop: latencies omit queueing behind slow responses (coordinated"
+                    + " omission); use -rate for latency under a fixed load");
+        } else {
+            System.out.printf("fixed rate: %d req/s, latency measured from each request's intended start%n", options.rate);
+        }
+        System.out.printf("%8s %10s %10s %8s %9s %9s %9s %9s %7s %9s%n",
+                "size", "requests", "req/s", "MB/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors", "sessions");
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        try {
+            for (int size : options.sizes) {
+                runSize(pool, base, size, options.warmup);
+                Result result = runSize(pool, base, size, options.duration);
+                String sessions = context == null ? "-" : Integer.toString(context.getManager().getActiveSessions());
+                result.print(size, options.duration, sessions);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs every client for the given time and merges their results.
+     */
+    private Result runSize(ExecutorService pool, String base, int size, int seconds) throws Exception {
+        long begin = System.nanoTime();
+        long deadline = begin + seconds * 1_000_000_000L;
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < options.threads; i++) {
+            // Fixed rate: each client sends every threads/rate seconds, the clients staggered evenly
+            long first = options.rate == 0 ? begin : begin + i * 1_000_000_000L / options.rate;
+            futures.add(pool.submit(new Client(base, size, first, deadline, i)));
+        }
+        Result total = new Result();
+        for (Future<Result> future : futures) {
+            total.merge(future.get());
+        }
+        return total;
+    }
+
+    private String nextKey() {
+        long n = options.keys == 0 ? keyCounter.incrementAndGet() : keyCounter.getAndIncrement() % options.keys;
+        return "load-test-key-" + n;
+    }
+
+    /**
+     * One client thread: sends requests back to back (closed loop) or on its
+     * schedule (fixed rate) until the deadline.
+     */
+    private final class Client implements Callable<Result> {
+
+        private final String base;
+        private final long first;
+        private final long deadline;
+        private final long interval;
+        private final byte[] body;
+        private String cookie;
+
+        Client(String base, int size, long first, long deadline, int seed) throws IOException {
+            this.base = base;
+            this.first = first;
+            this.deadline = deadline;
+            this.interval = options.rate == 0 ? 0 : options.threads * 1_000_000_000L / options.rate;
+            this.body = payload(size, new Random(seed));
+        }
+
+        @Override
+        public Result call() throws InterruptedException {
+            Result result = new Result();
+            byte[] drain = new byte[8192];
+            for (long n = 0;; n++) {
+                long start = interval == 0 ? System.nanoTime() : first + n * interval; // Intended start, even if already late
+                if (start >= deadline) {
+                    break;
+                }
+                for (long wait; (wait = start - System.nanoTime()) > 0;) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                try {
+                    int status = send(drain);
+                    if (status >= 400) {
+                        result.errors++;
+                    }
+                } catch (IOException e) {
+                    result.errors++;
+                }
+                long end = System.nanoTime();
+                result.add(end - start, body.length, end <= deadline);
+            }
+            return result;
+        }
+
+        private int send(byte[] drain) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + options.target.path).openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", options.target.contentType);
+            if (options.target != Target.RUNIDEA) {
+                connection.setRequestProperty("X-Idea-Key", nextKey());
+            }
+            if (cookie != null) {
+                connection.setRequestProperty("Cookie", cookie);
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            if (options.cookies) {
+                String setCookie = connection.getHeaderField("Set-Cookie");
+                if (setCookie != null) {
+                    cookie = setCookie.split(";", 2)[0];
+                }
+            }
+            // Read the body to the end so the connection goes back to the keep-alive pool
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                try {
+                    while (in.read(drain) >= 0) {
+                        // Discard
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            return status;
+        }
+
+        private byte[] payload(int size, Random random) throws IOException {
+            switch (options.target) {
+                case RUNIDEA: {
+                    char[] text = new char[size];
+                    for (int i = 0; i < size; i++) {
+                        text[i] = (char) ('a' + random.nextInt(26));
+                    }
+                    return ("key=" + URLEncoder.encode(new String(text), "UTF-8")).getBytes("US-ASCII");
+                }
+                case API: {
+                    byte[] data = new byte[size];
+                    random.nextBytes(data);
+                    return data;
+                }
+                default: {
+                    // BATCH_MESSAGES frames of the given size each, as IDEABatch expects
+                    byte[] framed = new byte[BATCH_MESSAGES * (4 + size)];
+                    for (int m = 0, pos = 0; m < BATCH_MESSAGES; m++, pos += 4 + size) {
+                        framed[pos] = (byte) (size >>> 24);
+                        framed[pos + 1] = (byte) (size >>> 16);
+                        framed[pos + 2] = (byte) (size >>> 8);
+                        framed[pos + 3] = (byte) size;
+                        for (int i = 0; i < size; i++) {
+                            framed[pos + 4 + i] = (byte) random.nextInt();
+                        }
+                    }
+                    return framed;
+                }
+            }
+        }
+    }
+
+    private enum Target {
+        RUNIDEA("/RunIDEA", "application/x-www-form-urlencoded"),
+        API("/api/encrypt", "application/octet-stream"),
+        BATCH("/api/batch/encrypt", "application/octet-stream");
+
+        final String path;
+        final String contentType;
+
+        Target(String path, String contentType) {
+            this.path = path;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Latencies of one or more clients, in nanoseconds, kept raw so the
+     * percentiles are exact. Every request sent has a latency; only those
+     * answered by the deadline count towards throughput.
+     */
+    private static final class Result {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int completed;
+        private long bytes;
+        private long errors;
+
+        void add(long nanos, int size, boolean inTime) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            }
+            latencies[count++] = nanos;
+            if (inTime) {
+                completed++;
+                bytes += size;
+            }
+        }
+
+        void merge(Result other) {
+            if (latencies.length - count < other.count) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            completed += other.completed;
+            bytes += other.bytes;
+            errors += other.errors;
+        }
+
+        void print(int size, int seconds, String sessions) {
+            Arrays.sort(latencies, 0, count);
+            System.out.printf("%8d %10d %10.1f %8.2f %9.3f %9.3f %9.3f %9.3f %7d %9s%n",
+                    size, completed, (double) completed / seconds, bytes / 1e6 / seconds,
+                    percentile(0.5), percentile(0.99), percentile(0.999),
+                    count == 0 ? 0.0 : latencies[count - 1] / 1e6, errors, sessions);
+        }
+
+        /**
+         * @return The q-quantile in milliseconds (nearest rank).
+         */
+        private double percentile(double q) {
+            if (count == 0) {
+                return 0.0;
+            }
+            int rank = (int) Math.ceil(q * count);
+            return latencies[Math.max(rank, 1) - 1] / 1e6;
+        }
+    }
+
+    private static final class Options {
+
+        Target target = Target.RUNIDEA;
+        int threads = 8;
+        int[] sizes = {16, 1024, 16384};
+        int duration = 10;
+        int warmup = 2;
+        int keys = 1;
+        int rate;
+        boolean cookies;
+        String url;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-cookies")) {
+                    options.cookies = true;
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "-target":
+                        options.target = Target.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "-threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "-sizes":
+                        options.sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                        break;
+                    case "-duration":
+                        options.duration = Integer.parseInt(value);
+                        break;
+                    case "-warmup":
+                        options.warmup = Integer.parseInt(value);
+                        break;
+                    case "-keys":
+                        options.keys = Integer.parseInt(value);
+                        break;
+                    case "-rate":
+                        options.rate = Integer.parseInt(value);
+                        break;
+                    case "-url":
+                        options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (options.threads < 1 || options.duration < 1 || options.warmup < 0 || options.keys < 0 || options.rate < 0) {
+                throw new IllegalArgumentException("threads and duration must be positive, warmup, keys and rate not negative.");
+            }
+            return options;
+        }
+    }
+}
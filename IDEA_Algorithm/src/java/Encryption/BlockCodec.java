@@ -0,0 +1,163 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.util.Arrays;
+
+/**
+ * Loads and stores 64-bit words (an IDEA block, or four 16-bit shorts) in byte
+ * arrays, in either byte order. This is the load/store around every block in
+ * the bulk paths, so {@link Utils} and {@link IDEAInterleaved} go through
+ * {@link #CODEC}.
+ *
+ * The portable codec assembles each word from single bytes. On Java 9 and
+ * later, {@code Encryption.VarHandleBlockCodec} (in src/java9) reads and writes
+ * each word with one array-view VarHandle access, which the JIT compiles to a
+ * single (byte-swapped where needed) 8-byte load or store. Like the Vector API
+ * engine, it is only ever loaded by name and only used after a self-check.
+ *
+ * @author User
+ */
+abstract class BlockCodec {
+
+    /**
+     * System property selecting the codec: "auto" (default), "varhandle" or "bytes".
+     */
+    static final String CODEC_PROPERTY = "idea.codec";
+
+    private static final String VARHANDLE_CODEC = "Encryption.VarHandleBlockCodec";
+
+    /**
+     * The byte-at-a-time codec; works everywhere.
+     */
+    static final BlockCodec BYTES = new Bytes();
+
+    /**
+     * The codec in use.
+     */
+    static final BlockCodec CODEC = selectCodec();
+
+    /**
+     * Reads eight bytes as a Big-Endian long.
+     */
+    abstract long getLong(byte[] in, int off);
+
+    /**
+     * Writes a long as eight Big-Endian bytes.
+     */
+    abstract void putLong(long value, byte[] out, int off);
+
+    /**
+     * Reads eight bytes as a Little-Endian long.
+     */
+    abstract long getLongLittle(byte[] in, int off);
+
+    /**
+     * Writes a long as eight Little-Endian bytes.
+     */
+    abstract void putLongLittle(long value, byte[] out, int off);
+
+    /**
+     * Reads count consecutive Big-Endian longs.
+     */
+    void getLongs(byte[] in, int inOff, long[] out, int outOff, int count) {
+        for (int i = 0; i < count; ++i) {
+            out[outOff + i] = getLong(in, inOff + 8 * i);
+        }
+    }
+
+    /**
+     * Writes count consecutive longs as Big-Endian bytes.
+     */
+    void putLongs(long[] in, int inOff, byte[] out, int outOff, int count) {
+        for (int i = 0; i < count; ++i) {
+            putLong(in[inOff + i], out, outOff + 8 * i);
+        }
+    }
+
+    /**
+     * Picks the VarHandle codec when it can be loaded and agrees with the
+     * byte codec, and the byte codec otherwise.
+     */
+    private static BlockCodec selectCodec() {
+        String choice = System.getProperty(CODEC_PROPERTY, "auto");
+        if ("bytes".equalsIgnoreCase(choice)) {
+            return BYTES;
+        }
+        try {
+            BlockCodec codec = (BlockCodec) Class.forName(VARHANDLE_CODEC).getDeclaredConstructor().newInstance();
+            if (agreesWithBytes(codec)) {
+                return codec;
+            }
+            System.err.println("Warning: " + VARHANDLE_CODEC + " disagrees with the byte codec; not using it.");
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Not built (needs JDK 9+ to compile), or running on Java 8
+            if ("varhandle".equalsIgnoreCase(choice)) {
+                System.err.println("Warning: VarHandle codec unavailable (" + e + "); using the byte codec.");
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Warning: VarHandle codec failed to start (" + e + "); using the byte codec.");
+        }
+        return BYTES;
+    }
+
+    /**
+     * Round-trips a pattern through both codecs at every alignment.
+     */
+    private static boolean agreesWithBytes(BlockCodec codec) {
+        byte[] data = new byte[40];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (0x9d * i + 0x3b);
+        }
+        byte[] expected = new byte[data.length];
+        byte[] actual = new byte[data.length];
+        for (int off = 0; off + 8 <= data.length; ++off) {
+            long big = BYTES.getLong(data, off);
+            long little = BYTES.getLongLittle(data, off);
+            if (codec.getLong(data, off) != big || codec.getLongLittle(data, off) != little) {
+                return false;
+            }
+            BYTES.putLong(big, expected, off);
+            codec.putLong(big, actual, off);
+            BYTES.putLongLittle(~little, expected, data.length - 8 - off);
+            codec.putLongLittle(~little, actual, data.length - 8 - off);
+            if (!Arrays.equals(expected, actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shifts and masks, one byte at a time.
+     */
+    private static final class Bytes extends BlockCodec {
+
+        @Override
+        long getLong(byte[] in, int off) {
+            return ((in[off] & 0xffL) << 56) | ((in[off + 1] & 0xffL) << 48)
+                    | ((in[off + 2] & 0xffL) << 40) | ((in[off + 3] & 0xffL) << 32)
+                    | ((in[off + 4] & 0xffL) << 24) | ((in[off + 5] & 0xffL) << 16)
+                    | ((in[off + 6] & 0xffL) << 8) | (in[off + 7] & 0xffL);
+        }
+
+        @Override
+        void putLong(long value, byte[] out, int off) {
+            for (int i = 0; i < 8; ++i) {
+                out[off + i] = (byte) (value >>> (56 - 8 * i));
+            }
+        }
+
+        @Override
+        long getLongLittle(byte[] in, int off) {
+            return Long.reverseBytes(getLong(in, off));
+        }
+
+        @Override
+        void putLongLittle(long value, byte[] out, int off) {
+            putLong(Long.reverseBytes(value), out, off);
+        }
+    }
+}
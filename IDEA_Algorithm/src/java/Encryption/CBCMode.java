@@ -0,0 +1,319 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * IDEA in cipher block chaining (CBC) mode with a 64-bit IV. Each clear text
+ * block is XORed with the previous cipher text block (the IV for the first)
+ * before it is encrypted.
+ *
+ * Encryption is inherently sequential: every block needs the cipher text of
+ * the one before it. Decryption is not, because plain block i is
+ * {@code D(c[i]) ^ c[i-1]} and both cipher text blocks are already known, so
+ * the decrypt side runs batches of blocks through the multi-block engine and
+ * XORs afterwards, and inputs at or above the parallel threshold are cut into
+ * segments and processed on a {@link ForkJoinPool}, exactly like
+ * {@link CTRMode}. Decryption throughput is therefore that of ECB.
+ *
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author User
+ */
+public final class CBCMode {
+
+    /**
+     * Inputs at least this big (in bytes) are decrypted in parallel by default.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * Size of the IV prepended by {@link #encrypt(byte[])}.
+     */
+    public static final int IV_SIZE = 8;
+
+    /**
+     * Smallest piece of work handed to a single fork/join task, in bytes.
+     * A multiple of the block size so segments start on block boundaries.
+     */
+    static final int SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * Per-thread chaining values for decryption, the companion of
+     * {@link IDEAInterleaved#SCRATCH}.
+     */
+    private static final ThreadLocal<long[]> PREVIOUS = ThreadLocal.withInitial(
+            () -> new long[IDEAInterleaved.ENGINE.batchBlocks()]);
+
+    private static final int BLOCK_SIZE = 8;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final IDEAKeySchedule keySchedule;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    /**
+     * Constructor, common fork/join pool and default threshold.
+     *
+     * @param keySchedule The key schedule to use.
+     */
+    public CBCMode(IDEAKeySchedule keySchedule) {
+        this(keySchedule, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param keySchedule The key schedule to use.
+     * @param pool The pool that runs parallel decryption segments.
+     * @param parallelThreshold Inputs smaller than this (in bytes) run single-threaded.
+     */
+    public CBCMode(IDEAKeySchedule keySchedule, ForkJoinPool pool, int parallelThreshold) {
+        if (keySchedule == null || pool == null) {
+            throw new IllegalArgumentException("Key schedule and pool cannot be null.");
+        }
+        this.keySchedule = keySchedule;
+        this.pool = pool;
+        this.parallelThreshold = Math.max(parallelThreshold, SEGMENT_SIZE);
+    }
+
+    /**
+     * Encrypts whole blocks, no padding. A long message may be encrypted in
+     * pieces by passing the returned value as the IV of the next piece.
+     *
+     * @param iv The initialisation vector (or the chaining value).
+     * @param in The input buffer.
+     * @param inOff The offset in the input buffer to start reading from.
+     * @param len The number of bytes to encrypt; a multiple of 8.
+     * @param out The output buffer; may be the input buffer, fully in place.
+     * @param outOff The offset in the output buffer to start writing to.
+     * @return The last cipher text block, the chaining value for what follows.
+     */
+    public long encryptBlocks(long iv, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkBlocks(in, inOff, len, out, outOff);
+        long start = System.nanoTime();
+        long chain = encryptChain(keySchedule.encryptKeys(), iv, in, inOff, len, out, outOff);
+        CipherMetrics.recordEncrypt(len, System.nanoTime() - start);
+        return chain;
+    }
+
+    /**
+     * Decrypts whole blocks, no padding; in parallel when the input is at
+     * least the parallel threshold. A long message may be decrypted in pieces
+     * by passing the returned value as the IV of the next piece.
+     *
+     * @param iv The initialisation vector (or the chaining value).
+     * @param in The input buffer.
+     * @param inOff The offset in the input buffer to start reading from.
+     * @param len The number of bytes to decrypt; a multiple of 8.
+     * @param out The output buffer; may be the input buffer, fully in place.
+     * @param outOff The offset in the output buffer to start writing to.
+     * @return The last cipher text block, the chaining value for what follows.
+     */
+    public long decryptBlocks(long iv, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkBlocks(in, inOff, len, out, outOff);
+        if (len == 0) {
+            return iv;
+        }
+        long start = System.nanoTime();
+        long last = Utils.squashBytesToLong(in, inOff + len - BLOCK_SIZE); // Before an in-place pass overwrites it
+        if (len >= parallelThreshold && pool.getParallelism() > 1) {
+            // Each segment only needs the cipher text block just before it; read them all up front
+            long[] chains = new long[(len + SEGMENT_SIZE - 1) / SEGMENT_SIZE];
+            chains[0] = iv;
+            for (int s = 1; s < chains.length; ++s) {
+                chains[s] = Utils.squashBytesToLong(in, inOff + s * SEGMENT_SIZE - BLOCK_SIZE);
+            }
+            pool.invoke(new Segment(chains, 0, chains.length, in, inOff, len, out, outOff));
+        } else {
+            decryptChain(keySchedule.decryptKeys(), iv, in, inOff, len, out, outOff);
+        }
+        CipherMetrics.recordDecrypt(len, System.nanoTime() - start);
+        return last;
+    }
+
+    /**
+     * Encrypts with PKCS#7 padding (a full block when the length is already
+     * aligned), like {@link IDEA#encryptBytes}.
+     *
+     * @param iv The initialisation vector.
+     * @param data The clear text.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes.
+     * @return The cipher text, 1 to 8 bytes longer than the input.
+     */
+    public byte[] encrypt(long iv, byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        int paddingNeeded = BLOCK_SIZE - (len % BLOCK_SIZE); // A full block when already aligned
+        byte[] out = Arrays.copyOfRange(data, off, off + len + paddingNeeded);
+        Arrays.fill(out, len, out.length, (byte) paddingNeeded);
+        encryptBlocks(iv, out, 0, out.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Decrypts and strips the PKCS#7 padding.
+     *
+     * @param iv The initialisation vector used to encrypt.
+     * @param data The cipher text.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes; a non-zero multiple of 8.
+     * @return The clear text.
+     * @throws IllegalArgumentException if the length or the padding is invalid
+     */
+    public byte[] decrypt(long iv, byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        if (len == 0 || len % BLOCK_SIZE != 0) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IllegalArgumentException("Encrypted length is not a multiple of block size.");
+        }
+        byte[] out = new byte[len];
+        decryptBlocks(iv, data, off, len, out, 0);
+        return Arrays.copyOf(out, len - IDEA.checkPadding(out, len));
+    }
+
+    /**
+     * Convenience: encrypts with a fresh random IV, which is prepended to the
+     * result so {@link #decrypt(byte[])} can find it.
+     *
+     * @param data The clear text.
+     * @return The IV followed by the padded cipher text.
+     */
+    public byte[] encrypt(byte[] data) {
+        long iv = RANDOM.nextLong();
+        int paddingNeeded = BLOCK_SIZE - (data.length % BLOCK_SIZE);
+        byte[] out = new byte[IV_SIZE + data.length + paddingNeeded];
+        Utils.spreadLongToBytes(iv, out, 0);
+        System.arraycopy(data, 0, out, IV_SIZE, data.length);
+        Arrays.fill(out, IV_SIZE + data.length, out.length, (byte) paddingNeeded);
+        encryptBlocks(iv, out, IV_SIZE, out.length - IV_SIZE, out, IV_SIZE);
+        return out;
+    }
+
+    /**
+     * Convenience: decrypts the output of {@link #encrypt(byte[])}.
+     *
+     * @param data The IV followed by the padded cipher text.
+     * @return The clear text.
+     * @throws IllegalArgumentException if the length or the padding is invalid
+     */
+    public byte[] decrypt(byte[] data) {
+        if (data.length < IV_SIZE) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IllegalArgumentException("Cipher text is shorter than the IV.");
+        }
+        return decrypt(Utils.squashBytesToLong(data, 0), data, IV_SIZE, data.length - IV_SIZE);
+    }
+
+    /**
+     * Single-threaded CBC encryption over whole blocks.
+     *
+     * @return The last cipher text block.
+     */
+    static long encryptChain(int[] keys, long chain, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        for (int end = inOff + len; inOff < end; inOff += BLOCK_SIZE, outOff += BLOCK_SIZE) {
+            chain = IDEA.idea(Utils.squashBytesToLong(in, inOff) ^ chain, keys);
+            Utils.spreadLongToBytes(chain, out, outOff);
+        }
+        return chain;
+    }
+
+    /**
+     * Single-threaded CBC decryption over whole blocks, in this thread's scratch arrays.
+     */
+    static long decryptChain(int[] keys, long chain, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        return decryptChain(keys, chain, in, inOff, len, out, outOff, IDEAInterleaved.SCRATCH.get(), PREVIOUS.get());
+    }
+
+    /**
+     * Single-threaded CBC decryption over whole blocks, with caller-owned
+     * scratch arrays of the same length (any length &gt; 0), for callers that
+     * keep their own. Each batch is read completely before any of
+     * it is written, so the output may be the input.
+     *
+     * @return The last cipher text block.
+     */
+    static long decryptChain(int[] keys, long chain, byte[] in, int inOff, int len, byte[] out, int outOff,
+            long[] blocks, long[] previous) {
+        for (int remaining = len / BLOCK_SIZE; remaining > 0;) {
+            int count = Math.min(remaining, blocks.length);
+            for (int i = 0; i < count; ++i) {
+                long c = Utils.squashBytesToLong(in, inOff + i * BLOCK_SIZE);
+                blocks[i] = c;
+                previous[i] = chain;
+                chain = c;
+            }
+            IDEAInterleaved.ENGINE.idea(blocks, 0, count, keys);
+            for (int i = 0; i < count; ++i) {
+                Utils.spreadLongToBytes(blocks[i] ^ previous[i], out, outOff + i * BLOCK_SIZE);
+            }
+            inOff += count * BLOCK_SIZE;
+            outOff += count * BLOCK_SIZE;
+            remaining -= count;
+        }
+        return chain;
+    }
+
+    private static void checkBlocks(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        if (len < 0 || inOff < 0 || outOff < 0 || in.length - inOff < len || out.length - outOff < len) {
+            throw new IllegalArgumentException("Input or output buffer too small for CBC processing.");
+        }
+        if (len % BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Length is not a multiple of block size.");
+        }
+    }
+
+    /**
+     * Fork/join task over a run of segments [from, to): splits the run in half
+     * until it is a single segment, then decrypts it from its chaining value
+     * (the IV, or the last cipher text block of the segment before).
+     */
+    private final class Segment extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] chains;
+        private final int from;
+        private final int to;
+        private final byte[] in;
+        private final int inOff;
+        private final int len;
+        private final byte[] out;
+        private final int outOff;
+
+        Segment(long[] chains, int from, int to, byte[] in, int inOff, int len, byte[] out, int outOff) {
+            this.chains = chains;
+            this.from = from;
+            this.to = to;
+            this.in = in;
+            this.inOff = inOff;
+            this.len = len;
+            this.out = out;
+            this.outOff = outOff;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int start = from * SEGMENT_SIZE;
+                decryptChain(keySchedule.decryptKeys(), chains[from], in, inOff + start,
+                        Math.min(SEGMENT_SIZE, len - start), out, outOff + start);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Segment(chains, from, mid, in, inOff, len, out, outOff),
+                    new Segment(chains, mid, to, in, inOff, len, out, outOff));
+        }
+    }
+}
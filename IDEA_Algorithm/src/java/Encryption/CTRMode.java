@@ -0,0 +1,297 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * IDEA in counter (CTR) mode. The key stream for block i is the encryption of
+ * the 64-bit counter {@code nonce + i}; it is XORed into the data, so
+ * encryption and decryption are the same operation and no padding is needed.
+ *
+ * Because every block is independent, inputs at or above the parallel
+ * threshold are cut into segments and processed on a {@link ForkJoinPool};
+ * smaller inputs stay on the calling thread. The nonce must never be reused
+ * with the same key for overlapping counter ranges.
+ *
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author User
+ */
+public final class CTRMode {
+
+    /**
+     * Inputs at least this big (in bytes) are processed in parallel by default.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * Smallest piece of work handed to a single fork/join task, in bytes.
+     * A multiple of the block size so segments start on block boundaries.
+     */
+    static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final int BLOCK_SIZE = 8;
+
+    private final IDEAKeySchedule keySchedule;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    /**
+     * Constructor, common fork/join pool and default threshold.
+     *
+     * @param keySchedule The key schedule to use.
+     */
+    public CTRMode(IDEAKeySchedule keySchedule) {
+        this(keySchedule, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param keySchedule The key schedule to use.
+     * @param pool The pool that runs parallel segments.
+     * @param parallelThreshold Inputs smaller than this (in bytes) run single-threaded.
+     */
+    public CTRMode(IDEAKeySchedule keySchedule, ForkJoinPool pool, int parallelThreshold) {
+        if (keySchedule == null || pool == null) {
+            throw new IllegalArgumentException("Key schedule and pool cannot be null.");
+        }
+        this.keySchedule = keySchedule;
+        this.pool = pool;
+        this.parallelThreshold = Math.max(parallelThreshold, SEGMENT_SIZE);
+    }
+
+    /**
+     * Encrypts or decrypts (the same operation in CTR mode) from the start of the key stream.
+     *
+     * @param nonce The initial counter value.
+     * @param in The input buffer.
+     * @param inOff The offset in the input buffer to start reading from.
+     * @param len The number of bytes to process; any length, no padding.
+     * @param out The output buffer; may be the input buffer, fully in place.
+     * @param outOff The offset in the output buffer to start writing to.
+     */
+    public void process(long nonce, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        process(nonce, 0, in, inOff, len, out, outOff);
+    }
+
+    /**
+     * Encrypts or decrypts starting at an arbitrary byte position in the key
+     * stream, e.g. to work on one piece of a larger message.
+     *
+     * @param nonce The initial counter value.
+     * @param position The byte offset into the key stream of the first input byte.
+     * @param in The input buffer.
+     * @param inOff The offset in the input buffer to start reading from.
+     * @param len The number of bytes to process; any length, no padding.
+     * @param out The output buffer; may be the input buffer, fully in place.
+     * @param outOff The offset in the output buffer to start writing to.
+     */
+    public void process(long nonce, long position, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        if (position < 0 || len < 0 || inOff < 0 || outOff < 0 || in.length - inOff < len || out.length - outOff < len) {
+            throw new IllegalArgumentException("Input or output buffer too small for CTR processing.");
+        }
+        long start = System.nanoTime();
+        if (len >= parallelThreshold && pool.getParallelism() > 1) {
+            pool.invoke(new Segment(nonce, position, in, inOff, len, out, outOff));
+        } else {
+            crypt(keySchedule.encryptKeys(), nonce, position, in, inOff, len, out, outOff);
+        }
+        CipherMetrics.recordEncrypt(len, System.nanoTime() - start);
+    }
+
+    /**
+     * Buffer form of {@link #process(long, long, byte[], int, int, byte[], int)}
+     * for heap and direct (e.g. memory-mapped) buffers. Processes all of
+     * {@code src.remaining()} and advances both positions past it.
+     *
+     * @param nonce The initial counter value.
+     * @param position The byte offset into the key stream of the first input byte.
+     * @param src The input buffer.
+     * @param dst The output buffer; may be {@code src} itself.
+     */
+    public void process(long nonce, long position, ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining();
+        if (position < 0 || dst.remaining() < len) {
+            throw new IllegalArgumentException("Output buffer too small for CTR processing.");
+        }
+        if (dst.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        int srcPos = src.position();
+        int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray()) {
+            process(nonce, position, src.array(), src.arrayOffset() + srcPos, len, dst.array(), dst.arrayOffset() + dstPos);
+        } else {
+            long start = System.nanoTime();
+            if (len >= parallelThreshold && pool.getParallelism() > 1) {
+                pool.invoke(new Segment(nonce, position, src, srcPos, len, dst, dstPos));
+            } else {
+                crypt(keySchedule.encryptKeys(), nonce, position, src, srcPos, len, dst, dstPos);
+            }
+            CipherMetrics.recordEncrypt(len, System.nanoTime() - start);
+        }
+        src.position(srcPos + len);
+        if (dst != src) { // In-place on a single buffer only moves one position
+            dst.position(dstPos + len);
+        }
+    }
+
+    /**
+     * Convenience: processes a whole array into a new one.
+     *
+     * @param nonce The initial counter value.
+     * @param in The input bytes.
+     * @return The output bytes, same length as the input.
+     */
+    public byte[] process(long nonce, byte[] in) {
+        byte[] out = new byte[in.length];
+        process(nonce, in, 0, in.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Single-threaded CTR over one range, on this thread's {@link IDEAInterleaved#SCRATCH}.
+     */
+    static void crypt(int[] keys, long nonce, long position, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        crypt(keys, nonce, position, in, inOff, len, out, outOff, IDEAInterleaved.SCRATCH.get());
+    }
+
+    /**
+     * Single-threaded CTR over one range, with a caller-owned scratch array
+     * (any length &gt; 0), for callers that keep their own.
+     */
+    static void crypt(int[] keys, long nonce, long position, byte[] in, int inOff, int len, byte[] out, int outOff, long[] streams) {
+        long counter = nonce + (position >>> 3);
+        int skip = (int) (position & (BLOCK_SIZE - 1));
+        int i = 0;
+
+        // Leading partial block when the position is not block aligned
+        if (skip != 0 && len > 0) {
+            long stream = IDEA.idea(counter++, keys);
+            for (; i < len && skip < BLOCK_SIZE; ++i, ++skip) {
+                out[outOff + i] = (byte) (in[inOff + i] ^ (stream >>> (56 - 8 * skip)));
+            }
+        }
+
+        // Whole blocks, a batch at a time through the multi-block engine
+        while (len - i >= BLOCK_SIZE) {
+            int count = Math.min((len - i) / BLOCK_SIZE, streams.length);
+            for (int j = 0; j < count; ++j) {
+                streams[j] = counter++;
+            }
+            IDEAInterleaved.ENGINE.idea(streams, 0, count, keys);
+            for (int j = 0; j < count; ++j, i += BLOCK_SIZE) {
+                Utils.spreadLongToBytes(Utils.squashBytesToLong(in, inOff + i) ^ streams[j], out, outOff + i);
+            }
+        }
+
+        // Trailing partial block
+        if (i < len) {
+            long stream = IDEA.idea(counter, keys);
+            for (int j = 0; i < len; ++i, ++j) {
+                out[outOff + i] = (byte) (in[inOff + i] ^ (stream >>> (56 - 8 * j)));
+            }
+        }
+    }
+
+    /**
+     * Single-threaded CTR over one buffer range, using absolute indices and
+     * this thread's {@link IDEAInterleaved#SCRATCH}.
+     */
+    static void crypt(int[] keys, long nonce, long position, ByteBuffer in, int inIndex, int len, ByteBuffer out, int outIndex) {
+        long counter = nonce + (position >>> 3);
+        int skip = (int) (position & (BLOCK_SIZE - 1));
+        int i = 0;
+
+        if (skip != 0 && len > 0) {
+            long stream = IDEA.idea(counter++, keys);
+            for (; i < len && skip < BLOCK_SIZE; ++i, ++skip) {
+                out.put(outIndex + i, (byte) (in.get(inIndex + i) ^ (stream >>> (56 - 8 * skip))));
+            }
+        }
+        long[] streams = IDEAInterleaved.SCRATCH.get();
+        while (len - i >= BLOCK_SIZE) {
+            int count = Math.min((len - i) / BLOCK_SIZE, streams.length);
+            for (int j = 0; j < count; ++j) {
+                streams[j] = counter++;
+            }
+            IDEAInterleaved.ENGINE.idea(streams, 0, count, keys);
+            for (int j = 0; j < count; ++j, i += BLOCK_SIZE) {
+                Utils.spreadLongToBytes(Utils.squashBytesToLong(in, inIndex + i) ^ streams[j], out, outIndex + i);
+            }
+        }
+
+        if (i < len) {
+            long stream = IDEA.idea(counter, keys);
+            for (int j = 0; i < len; ++i, ++j) {
+                out.put(outIndex + i, (byte) (in.get(inIndex + i) ^ (stream >>> (56 - 8 * j))));
+            }
+        }
+    }
+
+    /**
+     * Fork/join task: splits its range in half on a segment boundary until it
+     * is at most one segment, then runs {@link #crypt} on it. Works on either
+     * arrays or buffers (absolute indices); the other pair is null.
+     */
+    private final class Segment extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long nonce;
+        private final long position;
+        private final byte[] in;
+        private final ByteBuffer inBuf;
+        private final int inOff;
+        private final int len;
+        private final byte[] out;
+        private final ByteBuffer outBuf;
+        private final int outOff;
+
+        Segment(long nonce, long position, byte[] in, int inOff, int len, byte[] out, int outOff) {
+            this(nonce, position, in, null, inOff, len, out, null, outOff);
+        }
+
+        Segment(long nonce, long position, ByteBuffer inBuf, int inOff, int len, ByteBuffer outBuf, int outOff) {
+            this(nonce, position, null, inBuf, inOff, len, null, outBuf, outOff);
+        }
+
+        private Segment(long nonce, long position, byte[] in, ByteBuffer inBuf, int inOff, int len,
+                byte[] out, ByteBuffer outBuf, int outOff) {
+            this.nonce = nonce;
+            this.position = position;
+            this.in = in;
+            this.inBuf = inBuf;
+            this.inOff = inOff;
+            this.len = len;
+            this.out = out;
+            this.outBuf = outBuf;
+            this.outOff = outOff;
+        }
+
+        @Override
+        protected void compute() {
+            if (len <= SEGMENT_SIZE) {
+                if (in != null) {
+                    crypt(keySchedule.encryptKeys(), nonce, position, in, inOff, len, out, outOff);
+                } else {
+                    crypt(keySchedule.encryptKeys(), nonce, position, inBuf, inOff, len, outBuf, outOff);
+                }
+                return;
+            }
+            int half = (len >>> 1) / SEGMENT_SIZE * SEGMENT_SIZE;
+            if (half == 0) {
+                half = SEGMENT_SIZE;
+            }
+            invokeAll(new Segment(nonce, position, in, inBuf, inOff, half, out, outBuf, outOff),
+                    new Segment(nonce, position + half, in, inBuf, inOff + half, len - half, out, outBuf, outOff + half));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import Metrics.Counter;
+import Metrics.Histogram;
+import Metrics.MetricsRegistry;
+
+/**
+ * The cipher's metrics, registered in {@link MetricsRegistry#shared()}.
+ * Bytes, operations and latency are recorded by the bulk entry points:
+ * {@link IDEA#encryptBlocks} and {@link IDEA#decryptBlocks} (and so the String
+ * and byte[] methods, the streams, batches and the servlets),
+ * {@link TenantKeyStore}, {@link CBCMode}, {@link CTRMode#process} (and so
+ * {@link FileEncryptor} and {@link ContainerReader}), {@link EAXMode} and its
+ * streams, and {@link IDEACipherSpi}. CTR runs the block cipher forwards in
+ * both directions, so {@link CTRMode} traffic counts as {@code op="encrypt"};
+ * EAX and the JCA cipher know the direction and record it.
+ *
+ * @author User
+ */
+public final class CipherMetrics {
+
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.shared();
+
+    static final Counter ENCRYPT_BYTES = REGISTRY.counter("idea_bytes_total",
+            "Bytes run through the IDEA block engine.", "op", "encrypt");
+    static final Counter DECRYPT_BYTES = REGISTRY.counter("idea_bytes_total",
+            "Bytes run through the IDEA block engine.", "op", "decrypt");
+    static final Counter ENCRYPT_OPS = REGISTRY.counter("idea_operations_total",
+            "Bulk encrypt/decrypt calls.", "op", "encrypt");
+    static final Counter DECRYPT_OPS = REGISTRY.counter("idea_operations_total",
+            "Bulk encrypt/decrypt calls.", "op", "decrypt");
+    static final Histogram ENCRYPT_LATENCY = REGISTRY.histogram("idea_operation_duration_seconds",
+            "Time spent in bulk encrypt/decrypt calls.", "op", "encrypt");
+    static final Histogram DECRYPT_LATENCY = REGISTRY.histogram("idea_operation_duration_seconds",
+            "Time spent in bulk encrypt/decrypt calls.", "op", "decrypt");
+    static final Histogram KEY_SCHEDULE_LATENCY = REGISTRY.histogram("idea_key_schedule_duration_seconds",
+            "Time spent deriving key schedules (setKey, cache misses and decryption key inversion).");
+    static final Counter COALESCED_BATCHES = REGISTRY.counter("idea_coalescer_batches_total",
+            "Bulk passes run by the request coalescer.");
+    static final Counter COALESCED_OPERATIONS = REGISTRY.counter("idea_coalescer_operations_total",
+            "Messages processed through the request coalescer.");
+
+    /**
+     * Cipher texts rejected (or, for {@link IDEA#decrypt(String)}, returned
+     * unpadded) because of bad padding or a bad length.
+     */
+    public static final Counter INVALID_PADDING = REGISTRY.counter("idea_invalid_padding_total",
+            "Decryptions that found invalid padding or a bad cipher text length.");
+
+    /**
+     * Authenticated (EAX) messages rejected because the tag did not verify.
+     */
+    public static final Counter INVALID_TAG = REGISTRY.counter("idea_invalid_tag_total",
+            "Authenticated decryptions rejected for a bad tag or a truncated message.");
+
+    static {
+        KeyScheduleCache cache = KeyScheduleCache.shared();
+        REGISTRY.counter("idea_key_cache_hits_total", "Shared key schedule cache hits.", cache::hitCount);
+        REGISTRY.counter("idea_key_cache_misses_total", "Shared key schedule cache misses.", cache::missCount);
+        REGISTRY.counter("idea_key_cache_evictions_total", "Shared key schedule cache evictions.", cache::evictionCount);
+        REGISTRY.gauge("idea_key_cache_entries", "Key schedules held by the shared cache.", () -> cache.size());
+    }
+
+    private CipherMetrics() {
+    }
+
+    /**
+     * Makes sure the cipher metrics are registered, so they are exported (at
+     * zero) before the first operation. Registration itself happens when the
+     * class is initialised.
+     */
+    public static void register() {
+    }
+
+    static void recordEncrypt(int bytes, long nanos) {
+        ENCRYPT_BYTES.add(bytes);
+        ENCRYPT_OPS.increment();
+        ENCRYPT_LATENCY.observe(nanos);
+    }
+
+    static void recordDecrypt(int bytes, long nanos) {
+        DECRYPT_BYTES.add(bytes);
+        DECRYPT_OPS.increment();
+        DECRYPT_LATENCY.observe(nanos);
+    }
+
+    static void record(boolean encrypt, int bytes, long nanos) {
+        if (encrypt) {
+            recordEncrypt(bytes, nanos);
+        } else {
+            recordDecrypt(bytes, nanos);
+        }
+    }
+}
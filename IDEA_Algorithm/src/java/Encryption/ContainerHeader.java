@@ -0,0 +1,160 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Header of the seekable container format: a {@value #SIZE}-byte header
+ * followed by the IDEA CTR cipher text of the payload, byte for byte (no
+ * padding, so the body is exactly {@link #getLength()} bytes long).
+ *
+ * <pre>
+ *  0  8  magic "IDEASEK1"
+ *  8  4  format version ({@value #VERSION})
+ * 12  4  key id, telling the reader which key to use
+ * 16  8  nonce: payload byte p is covered by counter nonce + p / 8
+ * 24  8  payload length in bytes
+ * </pre>
+ *
+ * All fields are Big-Endian. Since CTR block {@code p / 8} can be computed
+ * directly, any byte range of the payload can be decrypted on its own;
+ * no chunk index is needed (see {@link ContainerReader}).
+ *
+ * @author User
+ */
+public final class ContainerHeader {
+
+    /**
+     * Header size in bytes; the payload starts at this file offset.
+     */
+    public static final int SIZE = 32;
+
+    /**
+     * The only version written so far.
+     */
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = "IDEASEK1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int keyId;
+    private final long nonce;
+    private final long length;
+
+    /**
+     * Constructor.
+     *
+     * @param keyId The key id.
+     * @param nonce The CTR nonce; must not be reused with the same key.
+     * @param length The payload length in bytes.
+     */
+    public ContainerHeader(int keyId, long nonce, long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative.");
+        }
+        this.keyId = keyId;
+        this.nonce = nonce;
+        this.length = length;
+    }
+
+    /**
+     * A header with a fresh random nonce.
+     *
+     * @param keyId The key id.
+     * @param length The payload length in bytes.
+     * @return The header.
+     */
+    public static ContainerHeader create(int keyId, long length) {
+        byte[] nonce = new byte[8];
+        RANDOM.nextBytes(nonce);
+        return new ContainerHeader(keyId, Utils.squashBytesToLong(nonce, 0), length);
+    }
+
+    /**
+     * @return The key id.
+     */
+    public int getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * @return The CTR nonce.
+     */
+    public long getNonce() {
+        return nonce;
+    }
+
+    /**
+     * @return The payload length in bytes.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return The {@value #SIZE} header bytes.
+     */
+    public byte[] toBytes() {
+        byte[] out = Arrays.copyOf(MAGIC, SIZE);
+        Utils.writeInt(VERSION, out, 8);
+        Utils.writeInt(keyId, out, 12);
+        Utils.spreadLongToBytes(nonce, out, 16);
+        Utils.spreadLongToBytes(length, out, 24);
+        return out;
+    }
+
+    /**
+     * Parses header bytes.
+     *
+     * @param in The buffer.
+     * @param off The offset of the header.
+     * @return The header.
+     * @throws IOException if the bytes are not a supported container header
+     */
+    public static ContainerHeader parse(byte[] in, int off) throws IOException {
+        if (in.length - off < SIZE || !Arrays.equals(Arrays.copyOfRange(in, off, off + MAGIC.length), MAGIC)) {
+            throw new IOException("Not an IDEA container.");
+        }
+        int version = Utils.readInt(in, off + 8);
+        if (version != VERSION) {
+            throw new IOException("Unsupported IDEA container version " + version + ".");
+        }
+        long length = Utils.squashBytesToLong(in, off + 24);
+        if (length < 0) {
+            throw new IOException("Corrupt IDEA container header.");
+        }
+        return new ContainerHeader(Utils.readInt(in, off + 12), Utils.squashBytesToLong(in, off + 16), length);
+    }
+
+    /**
+     * Reads and parses the header at the start of a file, without moving the
+     * channel's position.
+     *
+     * @param channel The file.
+     * @return The header.
+     * @throws IOException if the file cannot be read or is not a supported container
+     */
+    public static ContainerHeader read(FileChannel channel) throws IOException {
+        byte[] bytes = new byte[SIZE];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, buf.position()) < 0) {
+                throw new IOException("File too short to be an IDEA container.");
+            }
+        }
+        ContainerHeader header = parse(bytes, 0);
+        if (header.length > channel.size() - SIZE) { // Not SIZE + length, which can overflow
+            throw new IOException("IDEA container is truncated.");
+        }
+        return header;
+    }
+}
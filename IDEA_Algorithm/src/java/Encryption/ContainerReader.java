@@ -0,0 +1,133 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+/**
+ * Random-access reader for the seekable container format (see
+ * {@link ContainerHeader}). {@link #read(long, byte[], int, int)} fetches just
+ * the requested byte range with a positional {@link FileChannel} read and
+ * decrypts it in place, starting the CTR key stream at the right block, so a
+ * range read costs time proportional to the range rather than to the file.
+ *
+ * Positional reads do not touch the channel's position, so one reader can
+ * serve many threads at once.
+ *
+ * @author User
+ */
+public final class ContainerReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ContainerHeader header;
+    private final CTRMode ctr;
+
+    /**
+     * Opens a container whose key is looked up by the key id in its header.
+     *
+     * @param file The container file.
+     * @param keys Returns the key schedule for a key id, or null if it is unknown.
+     * @throws IOException if the file cannot be read, is not a container, or its key is unknown
+     */
+    public ContainerReader(Path file, IntFunction<IDEAKeySchedule> keys) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            header = ContainerHeader.read(channel);
+            IDEAKeySchedule schedule = keys.apply(header.getKeyId());
+            if (schedule == null) {
+                throw new IOException("No key for key id " + header.getKeyId() + ".");
+            }
+            ctr = new CTRMode(schedule);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a container with a known key, whatever its key id.
+     *
+     * @param file The container file.
+     * @param keySchedule The key schedule.
+     * @throws IOException if the file cannot be read or is not a container
+     */
+    public ContainerReader(Path file, IDEAKeySchedule keySchedule) throws IOException {
+        this(file, keyId -> keySchedule);
+    }
+
+    /**
+     * @return The container's header.
+     */
+    public ContainerHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @return The payload length in bytes.
+     */
+    public long length() {
+        return header.getLength();
+    }
+
+    /**
+     * Decrypts up to len payload bytes starting at position.
+     *
+     * @param position The payload offset to start at.
+     * @param dst The buffer receiving the clear text.
+     * @param off The offset in dst.
+     * @param len The number of bytes wanted.
+     * @return The number of bytes read, fewer than len only at the end of the
+     *         payload, or -1 if position is at or past the end.
+     * @throws IOException if the file cannot be read
+     */
+    public int read(long position, byte[] dst, int off, int len) throws IOException {
+        if (position < 0 || off < 0 || len < 0 || dst.length - off < len) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (position >= header.getLength()) {
+            return len == 0 ? 0 : -1;
+        }
+        int n = (int) Math.min(len, header.getLength() - position);
+        ByteBuffer buf = ByteBuffer.wrap(dst, off, n);
+        while (buf.hasRemaining()) {
+            int done = buf.position() - off;
+            if (channel.read(buf, ContainerHeader.SIZE + position + done) < 0) {
+                throw new IOException("IDEA container is truncated.");
+            }
+        }
+        ctr.process(header.getNonce(), position, dst, off, n, dst, off);
+        return n;
+    }
+
+    /**
+     * Decrypts exactly len payload bytes starting at position.
+     *
+     * @param position The payload offset to start at.
+     * @param len The number of bytes; the range must lie within the payload.
+     * @return The clear text.
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] readRange(long position, int len) throws IOException {
+        if (position < 0 || len < 0 || position + len > header.getLength()) {
+            throw new IllegalArgumentException("Range outside the payload.");
+        }
+        byte[] out = new byte[len];
+        if (len > 0) {
+            read(position, out, 0, len);
+        }
+        return out;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.crypto.AEADBadTagException;
+
+/**
+ * Input stream that verifies and decrypts what {@link EAXOutputStream} (or
+ * {@link EAXMode#encrypt(byte[], byte[], byte[], int, int)}) produced. Each
+ * buffer of cipher text is MACed and decrypted in one pass; the last
+ * {@link EAXMode#TAG_SIZE} bytes are held back as the tag and checked when the
+ * underlying stream ends.
+ *
+ * Clear text is handed out before the tag has been seen, so it must not be
+ * trusted (or acted upon) until the stream has been read to the end without
+ * an exception. A failed check throws an {@link IOException} whose cause is
+ * an {@link AEADBadTagException}, on that read and on every later one.
+ *
+ * @author User
+ */
+public class EAXInputStream extends FilterInputStream {
+
+    private final int[] keys;
+    private final long counter;
+    private final long headerMac;
+    private final EAXMode.Omac mac;
+    private final long[] streams = new long[IDEAInterleaved.ENGINE.batchBlocks()];
+    private final byte[] buffer;
+
+    /**
+     * buffer[pos, limit) is decrypted clear text ready to hand out;
+     * buffer[limit, filled) is cipher text read ahead (at least the held-back tag).
+     */
+    private int pos;
+    private int limit;
+    private int filled;
+    private long position;
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * The failed tag check, thrown again by every later read so that a
+     * rejected stream never looks like a clean end of stream.
+     */
+    private IOException failure;
+
+    /**
+     * Constructor.
+     *
+     * @param in The stream that supplies the cipher text and tag.
+     * @param mode The authenticated mode (and key) to decrypt with.
+     * @param nonce The nonce used to encrypt.
+     * @param header The associated data used to encrypt; may be null.
+     */
+    public EAXInputStream(InputStream in, EAXMode mode, byte[] nonce, byte[] header) {
+        this(in, mode, nonce, header, IDEAOutputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param in The stream that supplies the cipher text and tag.
+     * @param mode The authenticated mode (and key) to decrypt with.
+     * @param nonce The nonce used to encrypt.
+     * @param header The associated data used to encrypt; may be null.
+     * @param bufferSize The internal buffer size in bytes; more than {@link EAXMode#TAG_SIZE}.
+     */
+    public EAXInputStream(InputStream in, EAXMode mode, byte[] nonce, byte[] header, int bufferSize) {
+        super(in);
+        if (bufferSize <= EAXMode.TAG_SIZE) {
+            throw new IllegalArgumentException("Buffer must hold more than the tag.");
+        }
+        this.keys = mode.getKeySchedule().encryptKeys();
+        this.counter = mode.counter(nonce);
+        this.headerMac = mode.omac(1, header);
+        this.mac = mode.newOmac(2);
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || b.length - off < len) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureData()) {
+            int step = (int) Math.min(n - skipped, limit - pos);
+            pos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return limit - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        in.close();
+    }
+
+    /**
+     * Makes sure there is decrypted data to hand out, reading, verifying and
+     * decrypting more cipher text as needed.
+     *
+     * @return false at the end of the (verified) clear text.
+     */
+    private boolean ensureData() throws IOException {
+        ensureOpen();
+        if (failure != null) {
+            throw failure;
+        }
+        while (pos == limit) {
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Reads cipher text until something beyond the held-back tag can be
+     * released (or the underlying stream ends), then MACs and decrypts it.
+     */
+    private void fill() throws IOException {
+        // Keep the unreleased cipher text, drop what has been handed out
+        filled -= limit;
+        System.arraycopy(buffer, limit, buffer, 0, filled);
+        pos = limit = 0;
+
+        while (true) {
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n < 0) {
+                finish();
+                return;
+            }
+            filled += n;
+            int release = filled - EAXMode.TAG_SIZE;
+            if (release > 0) {
+                release(release);
+                return;
+            }
+        }
+    }
+
+    /**
+     * MACs and decrypts buffer[0, len) in place.
+     */
+    private void release(int len) {
+        long start = System.nanoTime();
+        mac.update(buffer, 0, len);
+        CTRMode.crypt(keys, counter, position, buffer, 0, len, buffer, 0, streams);
+        CipherMetrics.recordDecrypt(len, System.nanoTime() - start);
+        position += len;
+        limit = len;
+    }
+
+    /**
+     * End of the cipher text: what is left is the tag; check it.
+     */
+    private void finish() throws IOException {
+        eof = true;
+        if (filled < EAXMode.TAG_SIZE) {
+            CipherMetrics.INVALID_TAG.increment();
+            failure = new IOException(new AEADBadTagException("Encrypted stream is shorter than the tag."));
+            throw failure;
+        }
+        long expected = counter ^ headerMac ^ mac.finish();
+        if (expected != Utils.squashBytesToLong(buffer, filled - EAXMode.TAG_SIZE)) {
+            CipherMetrics.INVALID_TAG.increment();
+            failure = new IOException(new AEADBadTagException("Authentication tag mismatch."));
+            throw failure;
+        }
+        filled = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.AEADBadTagException;
+
+/**
+ * Authenticated encryption with IDEA in EAX mode (Bellare, Rogaway, Wagner):
+ * CTR for confidentiality plus OMAC (CMAC) over the nonce, an optional header
+ * of associated data and the cipher text, all under the one key. The 64-bit
+ * block uses the CMAC constant Rb = 0x1B.
+ *
+ * <pre>
+ *   N' = OMAC0(nonce)   H' = OMAC1(header)   C = CTR(N', M)   tag = N' ^ H' ^ OMAC2(C)
+ * </pre>
+ *
+ * The message is processed in cache-sized chunks, each one encrypted and then
+ * MACed (or MACed and then decrypted) while it is still hot, so a message is
+ * read from memory once. Any tampering with the nonce, header, cipher text or
+ * tag makes {@link #decrypt} throw {@link AEADBadTagException}; no clear text
+ * is returned in that case. {@link EAXOutputStream} and {@link EAXInputStream}
+ * are the streaming forms.
+ *
+ * A nonce must never be reused with the same key. Instances are immutable and
+ * may be shared between threads.
+ *
+ * @author User
+ */
+public final class EAXMode {
+
+    /**
+     * Size of the authentication tag appended to the cipher text.
+     */
+    public static final int TAG_SIZE = 8;
+
+    /**
+     * Size of the random nonce prepended by {@link #encrypt(byte[])}.
+     */
+    public static final int NONCE_SIZE = 8;
+
+    /**
+     * Bytes encrypted and MACed together before moving on.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    private static final int BLOCK_SIZE = 8;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final IDEAKeySchedule keySchedule;
+
+    /**
+     * OMAC subkeys: B = 2L and P = 4L in GF(2^64), where L = E(0).
+     */
+    private final long subkeyB;
+    private final long subkeyP;
+
+    /**
+     * Constructor.
+     *
+     * @param keySchedule The key schedule to use.
+     */
+    public EAXMode(IDEAKeySchedule keySchedule) {
+        if (keySchedule == null) {
+            throw new IllegalArgumentException("Key schedule cannot be null.");
+        }
+        this.keySchedule = keySchedule;
+        this.subkeyB = twice(IDEA.idea(0L, keySchedule.encryptKeys()));
+        this.subkeyP = twice(subkeyB);
+    }
+
+    /**
+     * Encrypts and authenticates.
+     *
+     * @param nonce The nonce, any length; unique per message.
+     * @param header Associated data that is authenticated but not encrypted; may be null.
+     * @param data The clear text.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes.
+     * @return The cipher text followed by the {@link #TAG_SIZE}-byte tag.
+     */
+    public byte[] encrypt(byte[] nonce, byte[] header, byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        byte[] out = new byte[len + TAG_SIZE];
+        long tag = seal(nonce, header, data, off, len, out, 0);
+        Utils.spreadLongToBytes(tag, out, len);
+        return out;
+    }
+
+    /**
+     * Verifies and decrypts.
+     *
+     * @param nonce The nonce used to encrypt.
+     * @param header The associated data used to encrypt; may be null.
+     * @param data The cipher text followed by the tag.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes, tag included.
+     * @return The clear text.
+     * @throws AEADBadTagException if the message is too short or fails verification
+     */
+    public byte[] decrypt(byte[] nonce, byte[] header, byte[] data, int off, int len) throws AEADBadTagException {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        if (len < TAG_SIZE) {
+            CipherMetrics.INVALID_TAG.increment();
+            throw new AEADBadTagException("Cipher text is shorter than the tag.");
+        }
+        int length = len - TAG_SIZE;
+        byte[] out = new byte[length];
+        long expected = open(nonce, header, data, off, length, out, 0);
+        if (expected != Utils.squashBytesToLong(data, off + length)) {
+            Arrays.fill(out, (byte) 0);
+            CipherMetrics.INVALID_TAG.increment();
+            throw new AEADBadTagException("Authentication tag mismatch.");
+        }
+        return out;
+    }
+
+    /**
+     * Convenience: encrypts with a fresh random nonce and no header.
+     *
+     * @param data The clear text.
+     * @return The nonce, the cipher text and the tag.
+     */
+    public byte[] encrypt(byte[] data) {
+        byte[] out = new byte[NONCE_SIZE + data.length + TAG_SIZE];
+        byte[] nonce = new byte[NONCE_SIZE];
+        RANDOM.nextBytes(nonce);
+        System.arraycopy(nonce, 0, out, 0, NONCE_SIZE);
+        long tag = seal(nonce, null, data, 0, data.length, out, NONCE_SIZE);
+        Utils.spreadLongToBytes(tag, out, NONCE_SIZE + data.length);
+        return out;
+    }
+
+    /**
+     * Convenience: verifies and decrypts the output of {@link #encrypt(byte[])}.
+     *
+     * @param data The nonce, the cipher text and the tag.
+     * @return The clear text.
+     * @throws AEADBadTagException if the message is too short or fails verification
+     */
+    public byte[] decrypt(byte[] data) throws AEADBadTagException {
+        if (data.length < NONCE_SIZE + TAG_SIZE) {
+            CipherMetrics.INVALID_TAG.increment();
+            throw new AEADBadTagException("Cipher text is shorter than the nonce and tag.");
+        }
+        return decrypt(Arrays.copyOf(data, NONCE_SIZE), null, data, NONCE_SIZE, data.length - NONCE_SIZE);
+    }
+
+    /**
+     * One pass of encryption: CTR a chunk into out, then MAC it.
+     *
+     * @return The tag.
+     */
+    private long seal(byte[] nonce, byte[] header, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        int[] keys = keySchedule.encryptKeys();
+        long counter = counter(nonce);
+        Omac mac = newOmac(2);
+        long[] streams = IDEAInterleaved.SCRATCH.get();
+        long start = System.nanoTime();
+        for (int done = 0; done < len; done += CHUNK_SIZE) {
+            int n = Math.min(CHUNK_SIZE, len - done);
+            CTRMode.crypt(keys, counter, done, in, inOff + done, n, out, outOff + done, streams);
+            mac.update(out, outOff + done, n);
+        }
+        long tag = counter ^ omac(1, header) ^ mac.finish();
+        CipherMetrics.recordEncrypt(len, System.nanoTime() - start);
+        return tag;
+    }
+
+    /**
+     * One pass of decryption: MAC a chunk of cipher text, then CTR it into out.
+     *
+     * @return The expected tag; the caller compares it.
+     */
+    private long open(byte[] nonce, byte[] header, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        int[] keys = keySchedule.encryptKeys();
+        long counter = counter(nonce);
+        Omac mac = newOmac(2);
+        long[] streams = IDEAInterleaved.SCRATCH.get();
+        long start = System.nanoTime();
+        for (int done = 0; done < len; done += CHUNK_SIZE) {
+            int n = Math.min(CHUNK_SIZE, len - done);
+            mac.update(in, inOff + done, n);
+            CTRMode.crypt(keys, counter, done, in, inOff + done, n, out, outOff + done, streams);
+        }
+        long tag = counter ^ omac(1, header) ^ mac.finish();
+        CipherMetrics.recordDecrypt(len, System.nanoTime() - start);
+        return tag;
+    }
+
+    /**
+     * @return OMAC with tweak t over a whole message (null counts as empty).
+     */
+    long omac(int tweak, byte[] data) {
+        Omac mac = newOmac(tweak);
+        if (data != null) {
+            mac.update(data, 0, data.length);
+        }
+        return mac.finish();
+    }
+
+    /**
+     * @return An incremental OMAC with tweak t, i.e. over [t] || message.
+     */
+    Omac newOmac(int tweak) {
+        return new Omac(keySchedule.encryptKeys(), subkeyB, subkeyP, tweak);
+    }
+
+    /**
+     * @return The counter block N' for a nonce.
+     */
+    long counter(byte[] nonce) {
+        return omac(0, nonce);
+    }
+
+    IDEAKeySchedule getKeySchedule() {
+        return keySchedule;
+    }
+
+    /**
+     * Doubling in GF(2^64) modulo x^64 + x^4 + x^3 + x + 1.
+     */
+    private static long twice(long x) {
+        return (x << 1) ^ ((x >> 63) & 0x1BL);
+    }
+
+    /**
+     * Incremental OMAC (CMAC). The most recent block is held back until more
+     * data arrives, because the last block is treated differently.
+     */
+    static final class Omac {
+
+        private final int[] keys;
+        private final long subkeyB;
+        private final long subkeyP;
+        private final byte[] pending = new byte[BLOCK_SIZE];
+        private int pendingLength;
+        private long state;
+
+        Omac(int[] keys, long subkeyB, long subkeyP, int tweak) {
+            this.keys = keys;
+            this.subkeyB = subkeyB;
+            this.subkeyP = subkeyP;
+            Utils.spreadLongToBytes(tweak, pending, 0); // The [t] block comes first
+            pendingLength = BLOCK_SIZE;
+        }
+
+        void update(byte[] in, int off, int len) {
+            if (len == 0) {
+                return;
+            }
+            int n = Math.min(len, BLOCK_SIZE - pendingLength);
+            System.arraycopy(in, off, pending, pendingLength, n);
+            pendingLength += n;
+            off += n;
+            len -= n;
+            if (len == 0) {
+                return;
+            }
+            // More follows, so the pending block is not the last one
+            state = IDEA.idea(state ^ Utils.squashBytesToLong(pending, 0), keys);
+            for (; len > BLOCK_SIZE; off += BLOCK_SIZE, len -= BLOCK_SIZE) {
+                state = IDEA.idea(state ^ Utils.squashBytesToLong(in, off), keys);
+            }
+            System.arraycopy(in, off, pending, 0, len);
+            pendingLength = len;
+        }
+
+        long finish() {
+            long last;
+            if (pendingLength == BLOCK_SIZE) {
+                last = Utils.squashBytesToLong(pending, 0) ^ subkeyB;
+            } else {
+                pending[pendingLength] = (byte) 0x80;
+                Arrays.fill(pending, pendingLength + 1, BLOCK_SIZE, (byte) 0);
+                last = Utils.squashBytesToLong(pending, 0) ^ subkeyP;
+            }
+            return IDEA.idea(state ^ last, keys);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that encrypts and authenticates everything written to it with
+ * {@link EAXMode}, in a single pass over each buffer. Produces the same bytes
+ * as {@link EAXMode#encrypt(byte[], byte[], byte[], int, int)} on the whole
+ * message: the cipher text, then the tag, which is written by {@link #close()}.
+ *
+ * @author User
+ */
+public class EAXOutputStream extends FilterOutputStream {
+
+    private final int[] keys;
+    private final long counter;
+    private final long headerMac;
+    private final EAXMode.Omac mac;
+    private final long[] streams = new long[IDEAInterleaved.ENGINE.batchBlocks()];
+    private final byte[] buffer;
+    private int count;
+    private long position;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param out The stream that receives the cipher text and tag.
+     * @param mode The authenticated mode (and key) to encrypt with.
+     * @param nonce The nonce, any length; unique per message.
+     * @param header Associated data that is authenticated but not encrypted; may be null.
+     */
+    public EAXOutputStream(OutputStream out, EAXMode mode, byte[] nonce, byte[] header) {
+        this(out, mode, nonce, header, IDEAOutputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out The stream that receives the cipher text and tag.
+     * @param mode The authenticated mode (and key) to encrypt with.
+     * @param nonce The nonce, any length; unique per message.
+     * @param header Associated data that is authenticated but not encrypted; may be null.
+     * @param bufferSize The internal buffer size in bytes; at least {@link EAXMode#TAG_SIZE}.
+     */
+    public EAXOutputStream(OutputStream out, EAXMode mode, byte[] nonce, byte[] header, int bufferSize) {
+        super(out);
+        if (bufferSize < EAXMode.TAG_SIZE) {
+            throw new IllegalArgumentException("Buffer must hold at least the tag.");
+        }
+        this.keys = mode.getKeySchedule().encryptKeys();
+        this.counter = mode.counter(nonce);
+        this.headerMac = mode.omac(1, header);
+        this.mac = mode.newOmac(2);
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || b.length - off < len) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (count == buffer.length) {
+                drain();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes out everything buffered so far; CTR needs no whole blocks.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes the last cipher text and the tag, and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            drain();
+            Utils.spreadLongToBytes(counter ^ headerMac ^ mac.finish(), buffer, 0);
+            out.write(buffer, 0, EAXMode.TAG_SIZE);
+            out.flush();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Encrypts, MACs and writes everything buffered.
+     */
+    private void drain() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        CTRMode.crypt(keys, counter, position, buffer, 0, count, buffer, 0, streams);
+        mac.update(buffer, 0, count);
+        CipherMetrics.recordEncrypt(count, System.nanoTime() - start);
+        out.write(buffer, 0, count);
+        position += count;
+        count = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
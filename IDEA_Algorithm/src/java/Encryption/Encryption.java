@@ -8,6 +8,7 @@ package Encryption;
  *
  * @author User
  */
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets; // Import for explicit character encoding
 
 public abstract class Encryption extends Utils {
@@ -41,6 +42,30 @@ public abstract class Encryption extends Utils {
      */
     public abstract String decrypt(String text);
 
+    /**
+     * Buffer encryption method. Encrypts as many whole blocks as are available in
+     * {@code src} and fit in {@code dst}, without padding. Works on heap and direct
+     * buffers alike and copies nothing in between. Like {@code CharsetEncoder}, the
+     * positions of both buffers are advanced past the bytes consumed and produced;
+     * a trailing partial block is left in {@code src} for the next call.
+     *
+     * @param src The buffer holding the plain text.
+     * @param dst The buffer that receives the cipher text; may be {@code src} itself.
+     * @return The number of bytes processed (always a multiple of the block size).
+     */
+    public abstract int encrypt(ByteBuffer src, ByteBuffer dst);
+
+    /**
+     * Buffer decryption method. Decrypts as many whole blocks as are available in
+     * {@code src} and fit in {@code dst}; padding is left for the caller to remove.
+     * Positions are advanced the same way as in {@link #encrypt(ByteBuffer, ByteBuffer)}.
+     *
+     * @param src The buffer holding the cipher text.
+     * @param dst The buffer that receives the plain text; may be {@code src} itself.
+     * @return The number of bytes processed (always a multiple of the block size).
+     */
+    public abstract int decrypt(ByteBuffer src, ByteBuffer dst);
+
     /**
      * Utility routine to turn a string into a key byte array of the right length.
      * This method derives a fixed-length key from a variable-length string.
@@ -51,6 +76,18 @@ public abstract class Encryption extends Utils {
      * @return A byte array representing the derived key.
      */
     protected byte[] makeKey(String keyStr) {
+        return makeKey(keyStr, keySize);
+    }
+
+    /**
+     * Static form of {@link #makeKey(String)} for callers that derive keys
+     * without a cipher instance, such as {@link KeyScheduleCache}.
+     *
+     * @param keyStr The input string from which to derive the key.
+     * @param keySize The key size in bytes, or 0 for the string's own length.
+     * @return A byte array representing the derived key.
+     */
+    protected static byte[] makeKey(String keyStr, int keySize) {
         byte[] key;
         if (keySize == 0) {
             // If keySize is 0, the key length will be the length of the string bytes
@@ -0,0 +1,133 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Command-line tool that encrypts or decrypts whole files with IDEA in CTR
+ * mode. Input and output are memory-mapped window by window, so files of any
+ * size are processed without being loaded onto the heap, and each window is
+ * spread across all cores by {@link CTRMode}.
+ *
+ * Usage: {@code java -cp IDEA_Algorithm.jar Encryption.FileEncryptor encrypt|decrypt <key> <in> <out>}
+ *
+ * The output of "encrypt" is a seekable container ({@link ContainerHeader}: a
+ * 32-byte header with the key id, nonce and length, then the CTR cipher text,
+ * the same length as the input), so ranges of it can later be read with
+ * {@link ContainerReader}. "decrypt" accepts only that container format.
+ *
+ * @author User
+ */
+public final class FileEncryptor {
+
+    /**
+     * How much of the file is mapped at a time, in bytes.
+     */
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final CTRMode ctr;
+    private final int keyId;
+
+    /**
+     * Constructor.
+     *
+     * @param keySchedule The key schedule to use.
+     */
+    public FileEncryptor(IDEAKeySchedule keySchedule) {
+        this(keySchedule, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param keySchedule The key schedule to use.
+     * @param keyId The key id recorded in the headers of encrypted files.
+     */
+    public FileEncryptor(IDEAKeySchedule keySchedule, int keyId) {
+        this.ctr = new CTRMode(keySchedule);
+        this.keyId = keyId;
+    }
+
+    /**
+     * Encrypts a file into a container, with a fresh random nonce.
+     *
+     * @param in The plain text file.
+     * @param out The cipher text file; created or truncated.
+     * @return The number of payload bytes processed.
+     * @throws IOException if a file cannot be read or written
+     */
+    public long encrypt(String in, String out) throws IOException {
+        try (RandomAccessFile src = new RandomAccessFile(in, "r");
+                RandomAccessFile dst = new RandomAccessFile(out, "rw")) {
+            long length = src.length();
+            ContainerHeader header = ContainerHeader.create(keyId, length);
+            dst.setLength(ContainerHeader.SIZE + length);
+            dst.write(header.toBytes());
+            transform(src.getChannel(), 0, dst.getChannel(), ContainerHeader.SIZE, length, header.getNonce());
+            return length;
+        }
+    }
+
+    /**
+     * Decrypts a file written by {@link #encrypt}.
+     *
+     * @param in The cipher text file.
+     * @param out The plain text file; created or truncated.
+     * @return The number of payload bytes processed.
+     * @throws IOException if a file cannot be read or written, or is not in this format
+     */
+    public long decrypt(String in, String out) throws IOException {
+        try (RandomAccessFile src = new RandomAccessFile(in, "r");
+                RandomAccessFile dst = new RandomAccessFile(out, "rw")) {
+            ContainerHeader header = ContainerHeader.read(src.getChannel());
+            long length = header.getLength();
+            dst.setLength(length);
+            transform(src.getChannel(), ContainerHeader.SIZE, dst.getChannel(), 0, length, header.getNonce());
+            return length;
+        }
+    }
+
+    /**
+     * Maps both files one window at a time and runs CTR over each window.
+     */
+    private void transform(FileChannel src, long srcOff, FileChannel dst, long dstOff, long length, long nonce) throws IOException {
+        for (long done = 0; done < length;) {
+            int window = (int) Math.min(WINDOW_SIZE, length - done);
+            ByteBuffer inBuf = src.map(FileChannel.MapMode.READ_ONLY, srcOff + done, window);
+            MappedByteBuffer outBuf = dst.map(FileChannel.MapMode.READ_WRITE, dstOff + done, window);
+            ctr.process(nonce, done, inBuf, outBuf);
+            outBuf.force();
+            done += window;
+        }
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args encrypt|decrypt, key, input file, output file
+     */
+    public static void main(String[] args) {
+        if (args.length != 4 || !(args[0].equals("encrypt") || args[0].equals("decrypt"))) {
+            System.err.println("Usage: java Encryption.FileEncryptor encrypt|decrypt <key> <in> <out>");
+            System.exit(1);
+        }
+        FileEncryptor tool = new FileEncryptor(new IDEA(args[1]).getKeySchedule());
+        try {
+            long start = System.nanoTime();
+            long bytes = args[0].equals("encrypt") ? tool.encrypt(args[2], args[3]) : tool.decrypt(args[2], args[3]);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%sed %d bytes in %.3f s (%.1f MB/s)%n",
+                    args[0], bytes, seconds, seconds > 0 ? bytes / 1e6 / seconds : 0.0);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+}
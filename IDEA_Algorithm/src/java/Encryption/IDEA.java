@@ -8,10 +8,10 @@ package Encryption;
  *
  * @author User
  */
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.StandardCharsets; // Import for explicit character encoding
-import java.util.ArrayList;
-import java.util.Arrays; // Added for array utility (e.g., Arrays.copyOfRange)
-import java.util.List;
+import java.util.Arrays; // Added for array utility (e.g., Arrays.copyOf)
 
 /**
  * Implementation for the IDEA encryption algorithm.
@@ -21,6 +21,11 @@ import java.util.List;
  */
 public class IDEA extends Encryption {
 
+    /**
+     * The IDEA block size in bytes.
+     */
+    public static final int BLOCK_SIZE = 8;
+
     /**
      * Constructor, string key.
      *
@@ -33,6 +38,22 @@ public class IDEA extends Encryption {
         setKey(keyStr);
     }
 
+    /**
+     * Constructor, precomputed key schedule. Lets many instances (or one shared
+     * instance) reuse a schedule instead of re-deriving the subkeys every time.
+     *
+     * @param keySchedule
+     */
+    public IDEA(IDEAKeySchedule keySchedule) {
+        this.name = IDEA.class.getSimpleName();
+        keySize = 16;
+        blockSize = 8; // IDEA operates on 8-byte (64-bit) blocks
+        if (keySchedule == null) {
+            throw new IllegalArgumentException("Key schedule cannot be null.");
+        }
+        this.keySchedule = keySchedule;
+    }
+
     // Removed charToAdd - we'll use a proper padding scheme now!
 
     @Override
@@ -54,32 +75,21 @@ public class IDEA extends Encryption {
         // If the original encryption padded correctly, this should already be the case.
         if (encryptedBytes.length % blockSize != 0) {
             System.err.println("Warning: Encrypted text length is not a multiple of block size. Decryption may fail or be incorrect.");
+            CipherMetrics.INVALID_PADDING.increment();
             // For a robust system, you might throw an exception here.
             // For now, we'll proceed but acknowledge the potential issue.
         }
 
-        List<byte[]> encryptedBlockList = new ArrayList<>();
-        for (int i = 0; i < encryptedBytes.length; i += blockSize) {
-            encryptedBlockList.add(Arrays.copyOfRange(encryptedBytes, i, i + blockSize));
-        }
-
-        // Use a ByteBuffer or similar for more efficient byte array concatenation if dealing with very large files.
-        // For strings, a byte[] list and then final concatenation is often fine.
-        byte[] decryptedConcatenatedBytes = new byte[encryptedBytes.length];
-        int currentOffset = 0;
-
-        for (byte[] encryptedBlock : encryptedBlockList) {
-            byte[] decryptedBlock = new byte[blockSize]; // Each block is 8 bytes
-            decrypt(encryptedBlock, 0, decryptedBlock, 0); // Call the byte-level decrypt method
-            System.arraycopy(decryptedBlock, 0, decryptedConcatenatedBytes, currentOffset, blockSize);
-            currentOffset += blockSize;
-        }
+        // Decrypt straight into the byte array we already own; no per-block copies.
+        decryptBlocks(encryptedBytes, 0, encryptedBytes.length, encryptedBytes, 0);
+        byte[] decryptedConcatenatedBytes = encryptedBytes;
 
         // Now, remove the PKCS#7 padding
         int paddingLength = decryptedConcatenatedBytes[decryptedConcatenatedBytes.length - 1];
         if (paddingLength > blockSize || paddingLength <= 0) {
             // This indicates invalid padding. Could be corruption or incorrect algorithm.
             System.err.println("Warning: Invalid padding detected during decryption. Returning raw decrypted bytes.");
+            CipherMetrics.INVALID_PADDING.increment();
             // In a real application, you'd likely throw a BadPaddingException here.
             return new String(decryptedConcatenatedBytes, StandardCharsets.UTF_8); // Return as is, or throw
         }
@@ -95,14 +105,12 @@ public class IDEA extends Encryption {
 
         if (!validPadding) {
             System.err.println("Warning: Padding bytes are inconsistent. Returning raw decrypted bytes.");
+            CipherMetrics.INVALID_PADDING.increment();
             return new String(decryptedConcatenatedBytes, StandardCharsets.UTF_8); // Return as is, or throw
         }
 
-        // Trim the padding
-        byte[] finalDecryptedBytes = Arrays.copyOfRange(decryptedConcatenatedBytes, 0, decryptedConcatenatedBytes.length - paddingLength);
-
-        // Convert the final decrypted bytes back to a String using a consistent encoding
-        return new String(finalDecryptedBytes, StandardCharsets.UTF_8);
+        // Trim the padding and convert the decrypted bytes back to a String using a consistent encoding
+        return new String(decryptedConcatenatedBytes, 0, decryptedConcatenatedBytes.length - paddingLength, StandardCharsets.UTF_8);
     }
 
     @Override
@@ -125,21 +133,8 @@ public class IDEA extends Encryption {
             paddedBytes[originalBytes.length + i] = (byte) paddingNeeded;
         }
 
-        List<byte[]> clearTextBlockList = new ArrayList<>();
-        for (int i = 0; i < paddedBytes.length; i += blockSize) {
-            clearTextBlockList.add(Arrays.copyOfRange(paddedBytes, i, i + blockSize));
-        }
-
-        // Use a ByteBuffer or similar for more efficient byte array concatenation if dealing with very large files.
-        byte[] encryptedConcatenatedBytes = new byte[paddedBytes.length];
-        int currentOffset = 0;
-
-        for (byte[] clearTextBlock : clearTextBlockList) {
-            byte[] encryptedBlock = new byte[blockSize]; // Each block is 8 bytes
-            encrypt(clearTextBlock, 0, encryptedBlock, 0); // Call the byte-level encrypt method
-            System.arraycopy(encryptedBlock, 0, encryptedConcatenatedBytes, currentOffset, blockSize);
-            currentOffset += blockSize;
-        }
+        // Encrypt the padded buffer in place; it is not shared with anyone else.
+        encryptBlocks(paddedBytes, 0, paddedBytes.length, paddedBytes, 0);
 
         // Convert the final encrypted bytes back to a String.
         // For encrypted bytes, it's common to use ISO_8859_1 (Latin-1) as it maps
@@ -147,134 +142,279 @@ public class IDEA extends Encryption {
         // effectively preserving the raw byte values without modification.
         // In a real application, you would often Base64 encode this byte array
         // to ensure it's safe for text transmission (e.g., JSON, URL, XML).
-        return new String(encryptedConcatenatedBytes, StandardCharsets.ISO_8859_1);
+        return new String(paddedBytes, StandardCharsets.ISO_8859_1);
     }
 
     /**
-     * Key routines
+     * Encrypts a string like {@link #encrypt(String)}, but returns the cipher
+     * text as URL-safe Base64 rather than a Latin-1 string, so it survives
+     * HTML forms, URLs and JSON. The digits are encoded straight from the
+     * cipher output buffer.
+     *
+     * @param text The clear text.
+     * @return The cipher text in URL-safe Base64, without padding.
      */
-    private int[] encryptKeys = new int[52];
-    private int[] decryptKeys = new int[52];
+    public String encryptToBase64(String text) {
+        byte[] cipherText = encryptUtf8(text);
+        return toBase64Url(cipherText, 0, cipherText.length);
+    }
 
     /**
-     * Block encryption routines.
+     * Decrypts cipher text produced by {@link #encryptToBase64}.
+     *
+     * @param text The cipher text in URL-safe Base64.
+     * @return The clear text.
+     * @throws IllegalArgumentException if the encoding, the length or the padding is invalid
      */
-    private int[] tempShorts = new int[4]; // 4 shorts = 8 bytes
+    public String decryptFromBase64(String text) {
+        return decryptUtf8(fromBase64Url(text));
+    }
 
     /**
-     * Encrypt a block of eight bytes.
+     * Encrypts a string like {@link #encrypt(String)}, but returns the cipher
+     * text as lowercase hex.
      *
-     * @param clearText
-     * @param clearOff
-     * @param cipherText
-     * @param cipherOff
+     * @param text The clear text.
+     * @return The cipher text in hex.
      */
-    private void encrypt(byte[] clearText, int clearOff, byte[] cipherText, int cipherOff) {
-        // Ensure input arrays are large enough
-        if (clearText.length < clearOff + blockSize || cipherText.length < cipherOff + blockSize) {
-            throw new IllegalArgumentException("Input or output buffer too small for block encryption.");
+    public String encryptToHex(String text) {
+        byte[] cipherText = encryptUtf8(text);
+        return toHex(cipherText, 0, cipherText.length);
+    }
+
+    /**
+     * Decrypts cipher text produced by {@link #encryptToHex}.
+     *
+     * @param text The cipher text in hex (either case).
+     * @return The clear text.
+     * @throws IllegalArgumentException if the encoding, the length or the padding is invalid
+     */
+    public String decryptFromHex(String text) {
+        return decryptUtf8(fromHex(text));
+    }
+
+    private byte[] encryptUtf8(String text) {
+        byte[] clearText = text.getBytes(StandardCharsets.UTF_8);
+        return encryptBytes(clearText, 0, clearText.length);
+    }
+
+    /**
+     * Decrypts the decoded cipher text in place and reads the clear text
+     * straight out of it.
+     */
+    private String decryptUtf8(byte[] cipherText) {
+        if (cipherText.length == 0 || cipherText.length % blockSize != 0) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IllegalArgumentException("Encrypted length is not a multiple of block size.");
         }
-        squashBytesToShorts(clearText, clearOff, tempShorts, 0, 4); // 4 shorts = 8 bytes
-        idea(tempShorts, tempShorts, encryptKeys);
-        spreadShortsToBytes(tempShorts, 0, cipherText, cipherOff, 4); // 4 shorts = 8 bytes
+        decryptBlocks(cipherText, 0, cipherText.length, cipherText, 0);
+        int paddingLength = checkPadding(cipherText, cipherText.length);
+        return new String(cipherText, 0, cipherText.length - paddingLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encrypts a run of whole 8-byte blocks (ECB, no padding).
+     * The output may be the same array as the input, including fully in place
+     * ({@code in == out && inOff == outOff}); no per-block objects are allocated.
+     * Blocks are run through the interleaved multi-block engine.
+     *
+     * @param in     The input (clear text) buffer.
+     * @param inOff  The offset in the input buffer to start reading from.
+     * @param len    The number of bytes to process; must be a multiple of the block size.
+     * @param out    The output (cipher text) buffer.
+     * @param outOff The offset in the output buffer to start writing to.
+     */
+    public void encryptBlocks(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkBlockRange(in, inOff, len, out, outOff);
+        long start = System.nanoTime();
+        IDEAInterleaved.process(keySchedule.encryptKeys(), in, inOff, len, out, outOff);
+        CipherMetrics.recordEncrypt(len, System.nanoTime() - start);
     }
 
     /**
-     * Decrypt a block of eight bytes.
+     * Decrypts a run of whole 8-byte blocks (ECB, no padding).
+     * The output may be the same array as the input, including fully in place
+     * ({@code in == out && inOff == outOff}); no per-block objects are allocated.
+     * Blocks are run through the interleaved multi-block engine.
      *
-     * @param cipherText
-     * @param cipherOff
-     * @param clearText
-     * @param clearOff
+     * @param in     The input (cipher text) buffer.
+     * @param inOff  The offset in the input buffer to start reading from.
+     * @param len    The number of bytes to process; must be a multiple of the block size.
+     * @param out    The output (clear text) buffer.
+     * @param outOff The offset in the output buffer to start writing to.
      */
-    private void decrypt(byte[] cipherText, int cipherOff, byte[] clearText, int clearOff) {
-        // Ensure input arrays are large enough
-        if (cipherText.length < cipherOff + blockSize || clearText.length < clearOff + blockSize) {
-            throw new IllegalArgumentException("Input or output buffer too small for block decryption.");
+    public void decryptBlocks(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkBlockRange(in, inOff, len, out, outOff);
+        long start = System.nanoTime();
+        IDEAInterleaved.process(keySchedule.decryptKeys(), in, inOff, len, out, outOff);
+        CipherMetrics.recordDecrypt(len, System.nanoTime() - start);
+    }
+
+    /**
+     * Encrypts raw bytes with PKCS#7 padding; the byte-level form of
+     * {@link #encrypt(String)}, without the string conversions.
+     *
+     * @param data The clear text buffer.
+     * @param off  The offset of the clear text.
+     * @param len  The length of the clear text.
+     * @return A new array holding the padded cipher text.
+     */
+    public byte[] encryptBytes(byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
         }
-        squashBytesToShorts(cipherText, cipherOff, tempShorts, 0, 4); // 4 shorts = 8 bytes
-        idea(tempShorts, tempShorts, decryptKeys);
-        spreadShortsToBytes(tempShorts, 0, clearText, clearOff, 4); // 4 shorts = 8 bytes
+        int paddingNeeded = blockSize - (len % blockSize); // A full block when already aligned
+        byte[] out = Arrays.copyOfRange(data, off, off + len + paddingNeeded);
+        Arrays.fill(out, len, out.length, (byte) paddingNeeded);
+        encryptBlocks(out, 0, out.length, out, 0);
+        return out;
     }
 
     /**
-     * Set the key.
+     * Decrypts raw bytes produced by {@link #encryptBytes} and strips the
+     * padding. Unlike {@link #decrypt(String)}, malformed input is rejected
+     * rather than returned as is.
      *
-     * @param key
+     * @param data The cipher text buffer.
+     * @param off  The offset of the cipher text.
+     * @param len  The length of the cipher text; a non-zero multiple of the block size.
+     * @return A new array holding the clear text.
+     * @throws IllegalArgumentException if the length or the padding is invalid
      */
-    @Override // This override annotation is good practice
-    protected void setKey(byte[] key) {
-        int k1, k2, j;
-        int t1, t2, t3;
-
-        // Encryption keys. The first 8 key values come from the 16
-        // user-supplied key bytes.
-        // Note: key is a byte[16], so 2 * k1 goes up to 14.
-        for (k1 = 0; k1 < 8; ++k1) {
-            encryptKeys[k1] = ((key[2 * k1] & 0xff) << 8) | (key[2 * k1 + 1] & 0xff);
+    public byte[] decryptBytes(byte[] data, int off, int len) {
+        if (len == 0 || len % blockSize != 0) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IllegalArgumentException("Encrypted length is not a multiple of block size.");
         }
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        byte[] out = new byte[len];
+        decryptBlocks(data, off, len, out, 0);
+        return Arrays.copyOf(out, len - checkPadding(out, len));
+    }
 
-        // Subsequent key values are the previous values rotated to the
-        // left by 25 bits (9 bits left, 7 bits right from a 16-bit word)
-        // 0xffff ensures it stays within 16 bits.
-        for (; k1 < 52; ++k1) {
-            encryptKeys[k1] = ((encryptKeys[k1 - 8] << 9) | (encryptKeys[k1 - 7] >>> 7)) & 0xffff;
+    /**
+     * Validates the PKCS#7 padding of a decrypted message ending at buf[end - 1].
+     * Shared by every decryption path; callers that report errors as
+     * IOException or BadPaddingException wrap the IllegalArgumentException.
+     *
+     * @param buf The decrypted bytes.
+     * @param end The end of the message in buf.
+     * @return The padding length.
+     * @throws IllegalArgumentException if the padding is invalid
+     */
+    public static int checkPadding(byte[] buf, int end) {
+        int paddingLength = buf[end - 1];
+        if (paddingLength > BLOCK_SIZE || paddingLength <= 0) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IllegalArgumentException("Invalid padding detected during decryption.");
         }
+        for (int i = 0; i < paddingLength; i++) {
+            if (buf[end - 1 - i] != paddingLength) {
+                CipherMetrics.INVALID_PADDING.increment();
+                throw new IllegalArgumentException("Padding bytes are inconsistent.");
+            }
+        }
+        return paddingLength;
+    }
+
+    @Override
+    public int encrypt(ByteBuffer src, ByteBuffer dst) {
+        return processBuffers(src, dst, true);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer src, ByteBuffer dst) {
+        return processBuffers(src, dst, false);
+    }
+
+    /**
+     * Shared body of the ByteBuffer methods. Array-backed buffers go through the
+     * bulk array path; anything else (direct, read-only) is read and written with
+     * absolute gets and puts so nothing is copied to the heap.
+     */
+    private int processBuffers(ByteBuffer src, ByteBuffer dst, boolean encrypting) {
+        int len = Math.min(src.remaining(), dst.remaining());
+        len -= len % blockSize;
+        int srcPos = src.position();
+        int dstPos = dst.position();
+        if (src.hasArray() && dst.hasArray()) {
+            byte[] in = src.array();
+            byte[] out = dst.array();
+            if (encrypting) {
+                encryptBlocks(in, src.arrayOffset() + srcPos, len, out, dst.arrayOffset() + dstPos);
+            } else {
+                decryptBlocks(in, src.arrayOffset() + srcPos, len, out, dst.arrayOffset() + dstPos);
+            }
+        } else {
+            if (dst.isReadOnly()) {
+                throw new ReadOnlyBufferException();
+            }
+            int[] keys = encrypting ? keySchedule.encryptKeys() : keySchedule.decryptKeys();
+            for (int i = 0; i < len; i += blockSize) {
+                spreadLongToBytes(idea(squashBytesToLong(src, srcPos + i), keys), dst, dstPos + i);
+            }
+        }
+        src.position(srcPos + len);
+        if (dst != src) { // In-place on a single buffer only moves one position
+            dst.position(dstPos + len);
+        }
+        return len;
+    }
 
-        // Decryption keys. These are the encryption keys, inverted and
-        // in reverse order.
-        k1 = 0;
-        k2 = 51;
-        // First 4 keys (Round 9 output transformation and Round 8 last key)
-        t1 = mulinv(encryptKeys[k1++]); // Z1 * X1 -> Z1^-1 * X1
-        t2 = -encryptKeys[k1++];       // Z2 + X2 -> -Z2 + X2
-        t3 = -encryptKeys[k1++];       // Z3 + X3 -> -Z3 + X3
-        decryptKeys[k2--] = mulinv(encryptKeys[k1++]); // Z4 * X4 -> Z4^-1 * X4
-        decryptKeys[k2--] = t3;
-        decryptKeys[k2--] = t2;
-        decryptKeys[k2--] = t1;
-
-        // Rounds 1-8 decryption keys
-        for (j = 1; j < 8; ++j) {
-            t1 = encryptKeys[k1++]; // Z5 (for next round input transformation)
-            decryptKeys[k2--] = encryptKeys[k1++]; // Z6
-            decryptKeys[k2--] = t1; // Z5
-
-            t1 = mulinv(encryptKeys[k1++]); // Z1
-            t2 = -encryptKeys[k1++];       // Z2
-            t3 = -encryptKeys[k1++];       // Z3
-            decryptKeys[k2--] = mulinv(encryptKeys[k1++]); // Z4
-            decryptKeys[k2--] = t2;
-            decryptKeys[k2--] = t3;
-            decryptKeys[k2--] = t1;
+    /**
+     * Validates the arguments of the bulk block methods.
+     */
+    private void checkBlockRange(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        if (len < 0 || len % blockSize != 0) {
+            throw new IllegalArgumentException("Length must be a non-negative multiple of the block size (" + blockSize + " bytes).");
+        }
+        if (inOff < 0 || outOff < 0 || in.length - inOff < len || out.length - outOff < len) {
+            throw new IllegalArgumentException("Input or output buffer too small for block encryption.");
         }
-        // Last 4 keys (Round 0 output transformation - which is Round 1 input inverse)
-        t1 = encryptKeys[k1++];
-        decryptKeys[k2--] = encryptKeys[k1++];
-        decryptKeys[k2--] = t1;
-        t1 = mulinv(encryptKeys[k1++]);
-        t2 = -encryptKeys[k1++];
-        t3 = -encryptKeys[k1++];
-        decryptKeys[k2--] = mulinv(encryptKeys[k1++]);
-        decryptKeys[k2--] = t3;
-        decryptKeys[k2--] = t2;
-        decryptKeys[k2--] = t1;
     }
 
     /**
-     * Run IDEA on one block (8 bytes).
+     * Key routines. The schedule is immutable and every block routine below works
+     * on locals only, so one instance can be shared freely between threads.
+     */
+    private IDEAKeySchedule keySchedule;
+
+    /**
+     * Returns the key schedule in use, e.g. to build further instances from it.
      *
-     * @param inShorts  Input block (4 shorts representing 8 bytes).
-     * @param outShorts Output block (4 shorts representing 8 bytes).
-     * @param keys      The array of round keys (either encryptKeys or decryptKeys).
+     * @return The immutable key schedule.
      */
-    private void idea(int[] inShorts, int[] outShorts, int[] keys) {
+    public IDEAKeySchedule getKeySchedule() {
+        return keySchedule;
+    }
+
+    /**
+     * Set the key.
+     *
+     * @param key
+     */
+    @Override // This override annotation is good practice
+    protected void setKey(byte[] key) {
+        keySchedule = new IDEAKeySchedule(key);
+    }
+
+    /**
+     * Run IDEA on one block (8 bytes). Stateless: the block travels in and out as
+     * a big-endian long holding the four 16-bit words, everything else is local.
+     *
+     * @param block Input block (4 shorts packed as 8 bytes, x1 in the top bits).
+     * @param keys  The array of round keys (either encrypt or decrypt keys).
+     * @return The output block, packed the same way.
+     */
+    static long idea(long block, int[] keys) {
         int x1, x2, x3, x4, k, t1, t2;
 
-        x1 = inShorts[0];
-        x2 = inShorts[1];
-        x3 = inShorts[2];
-        x4 = inShorts[3];
+        x1 = (int) (block >>> 48) & 0xffff;
+        x2 = (int) (block >>> 32) & 0xffff;
+        x3 = (int) (block >>> 16) & 0xffff;
+        x4 = (int) block & 0xffff;
         k = 0; // Key index
 
         for (int round = 0; round < 8; ++round) { // 8 full rounds
@@ -307,99 +447,22 @@ public class IDEA extends Encryption {
         }
 
         // Final output transformation (after 8 rounds, use the last 4 keys)
-        outShorts[0] = multiplicationModulo65537(x1 & 0xffff, keys[k++]) & 0xffff;
-        outShorts[1] = (x3 + keys[k++]) & 0xffff; // Note: x2 and x3 are swapped in final transformation compared to rounds
-        outShorts[2] = (x2 + keys[k++]) & 0xffff; // This swap logic is critical for IDEA
-        outShorts[3] = multiplicationModulo65537(x4 & 0xffff, keys[k++]) & 0xffff;
+        long y1 = multiplicationModulo65537(x1 & 0xffff, keys[k++]) & 0xffff;
+        long y2 = (x3 + keys[k++]) & 0xffff; // Note: x2 and x3 are swapped in final transformation compared to rounds
+        long y3 = (x2 + keys[k++]) & 0xffff; // This swap logic is critical for IDEA
+        long y4 = multiplicationModulo65537(x4 & 0xffff, keys[k++]) & 0xffff;
+        return (y1 << 48) | (y2 << 32) | (y3 << 16) | y4;
     }
 
     /**
-     * Multiplication modulo 65537.
+     * Multiplication modulo 65537. Dispatches to the kernel selected in
+     * {@link IDEAKernel}; the JIT folds the choice away.
      *
      * @param a
      * @param b
      * @return
      */
-    private static int multiplicationModulo65537(int a, int b) {
-        // Ensure inputs are 16-bit
-        a &= 0xffff;
-        b &= 0xffff;
-
-        if (a == 0) { // 0x0000 in Z_65537* is 0x10000 (65536) in usual arithmetic
-            a = 0x10000;
-        }
-        if (b == 0) {
-            b = 0x10000;
-        }
-
-        long ab = (long) a * b; // Use long to prevent overflow before modulo
-        long r = ab % 65537L;
-
-        return (int) r;
-    }
-
-    /**
-     * The multiplicative inverse of x, modulo 65537. Uses Euclid's GCD
-     * algorithm. It is unrolled twice to avoid swapping the meaning of the
-     * registers each iteration, and some subtracts of t have been changed to
-     * adds.
-     *
-     * @param x
-     * @return
-     */
-    private static int mulinv(int x) {
-        int t0, t1, q, y;
-        if (x <= 1) { // 0 and 1 are self-inverse for Z_65537* (where 0 maps to 65536)
-            return x; // For 0, it's 0x10000, for 1, it's 1
-        }
-
-        // Euclid's Extended GCD algorithm for (a, m) where m = 65537 (prime)
-        // We want a * x + m * y = gcd(a, m) = 1
-        // x is the inverse of a modulo m
-        t0 = 1; // Represents coefficient for m (initially 1)
-        t1 = 0; // Represents coefficient for a (initially 0)
-
-        int modulus = 65537;
-        int current_a = modulus;
-        int current_b = x; // The number we want inverse of
-
-        // Loop until current_b becomes 0 or 1
-        // The original code's unrolling makes it slightly less readable
-        // I'll re-implement based on standard extended Euclidean algorithm
-        // for clarity, then you can optimize if needed.
-
-        // Initialize variables for extended Euclidean algorithm
-        // r_i = q_i * r_{i+1} + r_{i+2}
-        // x_i = x_{i-2} - q_{i-1} * x_{i-1}
-        // y_i = y_{i-2} - q_{i-1} * y_{i-1}
-
-        int r0 = modulus;
-        int r1 = x;
-        int x0 = 1;
-        int x1 = 0;
-        int y0 = 0;
-        int y1 = 1;
-
-        while (r1 != 0) {
-            q = r0 / r1; // Quotient
-            int temp_r = r0 % r1;
-            r0 = r1;
-            r1 = temp_r;
-
-            int temp_x = x0 - q * x1;
-            x0 = x1;
-            x1 = temp_x;
-
-            int temp_y = y0 - q * y1;
-            y0 = y1;
-            y1 = temp_y;
-        }
-
-        // At this point, r0 is GCD, and y0 is the inverse.
-        // We need to ensure the result is positive and within 16 bits.
-        // If x was 0x0000 (interpreted as 0x10000), its inverse is 0x10000.
-        // The algorithm usually gives a negative inverse for some cases,
-        // so we need to adjust it to be in the positive range [1, 65536].
-        return (y0 + modulus) % modulus; // Ensure it's positive and within range
+    static int multiplicationModulo65537(int a, int b) {
+        return IDEAKernel.FAST ? IDEAKernel.mulFast(a, b) : IDEAKernel.mulReference(a, b);
     }
 }
\ No newline at end of file
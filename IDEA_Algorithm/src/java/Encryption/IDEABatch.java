@@ -0,0 +1,171 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+/**
+ * Encrypts or decrypts many small messages under one key in a single bulk
+ * pass. Messages travel framed: each one is a 4-byte big-endian length
+ * followed by that many bytes, and the frames are simply concatenated. The
+ * result uses the same framing, one output frame per input frame, in order.
+ *
+ * Each message is padded (PKCS#7) individually, exactly as
+ * {@link IDEA#encryptBytes}, but all the padded messages are laid out side by
+ * side and pushed through the block engine together. With thousands of
+ * records of a few blocks each, the per-message cost is the copy and the
+ * framing instead of a separate engine call.
+ *
+ * @author User
+ */
+public final class IDEABatch {
+
+    /**
+     * Size of the length prefix in bytes.
+     */
+    public static final int FRAME_HEADER_SIZE = 4;
+
+    private static final int BLOCK_SIZE = 8;
+
+    private IDEABatch() {
+    }
+
+    /**
+     * Encrypts every framed message.
+     *
+     * @param cipher The cipher to use.
+     * @param framed The framed clear text messages.
+     * @param off    The offset of the first frame.
+     * @param len    The total length of the frames.
+     * @return The framed cipher texts.
+     * @throws IllegalArgumentException if the framing is malformed
+     */
+    public static byte[] encrypt(IDEA cipher, byte[] framed, int off, int len) {
+        int end = checkRange(framed, off, len);
+
+        // Pass 1: validate the frames and size the work area
+        int count = 0;
+        long padded = 0;
+        for (int pos = off; pos < end; ++count) {
+            int length = frameLength(framed, pos, end);
+            padded += length + BLOCK_SIZE - length % BLOCK_SIZE;
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        byte[] work = new byte[checkSize(padded)];
+
+        // Pass 2: pad every message into the work area and encrypt them all at once
+        for (int pos = off, w = 0; pos < end;) {
+            int length = Utils.readInt(framed, pos);
+            System.arraycopy(framed, pos + FRAME_HEADER_SIZE, work, w, length);
+            int paddingNeeded = BLOCK_SIZE - length % BLOCK_SIZE; // A full block when already aligned
+            for (int i = 0; i < paddingNeeded; i++) {
+                work[w + length + i] = (byte) paddingNeeded;
+            }
+            w += length + paddingNeeded;
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        cipher.encryptBlocks(work, 0, work.length, work, 0);
+
+        // Pass 3: frame the results
+        byte[] out = new byte[checkSize((long) count * FRAME_HEADER_SIZE + work.length)];
+        for (int pos = off, w = 0, o = 0; pos < end;) {
+            int length = Utils.readInt(framed, pos);
+            int cipherLength = length + BLOCK_SIZE - length % BLOCK_SIZE;
+            Utils.writeInt(cipherLength, out, o);
+            System.arraycopy(work, w, out, o + FRAME_HEADER_SIZE, cipherLength);
+            w += cipherLength;
+            o += FRAME_HEADER_SIZE + cipherLength;
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        return out;
+    }
+
+    /**
+     * Decrypts every framed message and strips its padding.
+     *
+     * @param cipher The cipher to use.
+     * @param framed The framed cipher texts, as produced by {@link #encrypt}.
+     * @param off    The offset of the first frame.
+     * @param len    The total length of the frames.
+     * @return The framed clear text messages.
+     * @throws IllegalArgumentException if the framing, a message length or a padding is invalid
+     */
+    public static byte[] decrypt(IDEA cipher, byte[] framed, int off, int len) {
+        int end = checkRange(framed, off, len);
+
+        // Pass 1: validate the frames; the cipher texts together are never larger than the input
+        int count = 0;
+        int total = 0;
+        for (int pos = off; pos < end; ++count) {
+            int length = frameLength(framed, pos, end);
+            if (length == 0 || length % BLOCK_SIZE != 0) {
+                throw new IllegalArgumentException("Message " + count + ": encrypted length is not a multiple of block size.");
+            }
+            total += length;
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        byte[] work = new byte[total];
+
+        // Pass 2: gather the cipher texts and decrypt them all at once
+        for (int pos = off, w = 0; pos < end;) {
+            int length = Utils.readInt(framed, pos);
+            System.arraycopy(framed, pos + FRAME_HEADER_SIZE, work, w, length);
+            w += length;
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        cipher.decryptBlocks(work, 0, work.length, work, 0);
+
+        // Pass 3: check the paddings, then frame the results
+        int[] plainLengths = new int[count];
+        int outSize = 0;
+        for (int i = 0, pos = off, w = 0; i < count; ++i) {
+            int length = Utils.readInt(framed, pos);
+            w += length;
+            try {
+                plainLengths[i] = length - IDEA.checkPadding(work, w);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Message " + i + ": " + e.getMessage(), e);
+            }
+            outSize += FRAME_HEADER_SIZE + plainLengths[i];
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        byte[] out = new byte[outSize];
+        for (int i = 0, pos = off, w = 0, o = 0; i < count; ++i) {
+            int length = Utils.readInt(framed, pos);
+            Utils.writeInt(plainLengths[i], out, o);
+            System.arraycopy(work, w, out, o + FRAME_HEADER_SIZE, plainLengths[i]);
+            w += length;
+            o += FRAME_HEADER_SIZE + plainLengths[i];
+            pos += FRAME_HEADER_SIZE + length;
+        }
+        return out;
+    }
+
+    private static int checkRange(byte[] framed, int off, int len) {
+        if (off < 0 || len < 0 || framed.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        return off + len;
+    }
+
+    /**
+     * Reads and checks the length prefix of the frame at pos.
+     */
+    private static int frameLength(byte[] framed, int pos, int end) {
+        if (end - pos < FRAME_HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated frame header at offset " + pos + ".");
+        }
+        int length = Utils.readInt(framed, pos);
+        if (length < 0 || end - pos - FRAME_HEADER_SIZE < length) {
+            throw new IllegalArgumentException("Frame at offset " + pos + " runs past the end of the batch.");
+        }
+        return length;
+    }
+
+    private static int checkSize(long size) {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Batch too large.");
+        }
+        return (int) size;
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.security.AlgorithmParameters;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.InvalidParameterSpecException;
+import java.util.Arrays;
+import java.util.Locale;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherSpi;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * {@link CipherSpi} for IDEA, registered by {@link IDEAProvider}. Supports
+ * ECB and CBC with PKCS5Padding or NoPadding, and CTR with NoPadding.
+ *
+ * ECB with PKCS5Padding produces the same bytes as {@link IDEA#encrypt(String)}
+ * (except for empty input, which gets a full padding block here).
+ * CBC and CTR take an 8-byte IV ({@link IvParameterSpec}); for CTR it is the
+ * initial 64-bit counter, as in {@link CTRMode}. When encrypting without an IV,
+ * a random one is generated and can be read back with {@code Cipher.getIV()}.
+ *
+ * Updates that write into a caller-supplied buffer allocate nothing; partial
+ * blocks are kept in a small internal buffer between calls. As required by
+ * JCA, the cipher returns to its initialised state after {@code doFinal}, so
+ * instances can be reused. Each init derives its own key schedule; keys
+ * given to the JCA never enter {@link KeyScheduleCache#shared()}.
+ *
+ * @author User
+ */
+public final class IDEACipherSpi extends CipherSpi {
+
+    private static final int BLOCK_SIZE = 8;
+
+    private static final int ECB = 0;
+    private static final int CBC = 1;
+    private static final int CTR = 2;
+
+    private int mode = ECB;
+    private boolean padding = true;
+
+    private boolean encrypting;
+    private IDEAKeySchedule keySchedule;
+    private int[] keys;
+    private byte[] iv;
+
+    /**
+     * Running state: the CBC chaining value, the CTR key stream position and
+     * any partial block waiting for more input.
+     */
+    private long chain;
+    private long streamPosition;
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private int buffered;
+
+    /**
+     * Scratch space for the multi-block engine, allocated once.
+     */
+    private final long[] blocks = new long[IDEAInterleaved.ENGINE.batchBlocks()];
+    private final long[] previous = new long[blocks.length];
+
+    /**
+     * Public no-argument constructor, as required by the JCA framework.
+     */
+    public IDEACipherSpi() {
+    }
+
+    @Override
+    protected void engineSetMode(String modeName) throws NoSuchAlgorithmException {
+        switch (modeName.toUpperCase(Locale.ROOT)) {
+            case "ECB":
+                mode = ECB;
+                break;
+            case "CBC":
+                mode = CBC;
+                break;
+            case "CTR":
+                mode = CTR;
+                break;
+            default:
+                throw new NoSuchAlgorithmException("Unsupported IDEA mode: " + modeName);
+        }
+    }
+
+    @Override
+    protected void engineSetPadding(String paddingName) throws NoSuchPaddingException {
+        switch (paddingName.toUpperCase(Locale.ROOT)) {
+            case "NOPADDING":
+                padding = false;
+                break;
+            case "PKCS5PADDING":
+            case "PKCS7PADDING":
+                padding = true;
+                break;
+            default:
+                throw new NoSuchPaddingException("Unsupported IDEA padding: " + paddingName);
+        }
+    }
+
+    @Override
+    protected int engineGetBlockSize() {
+        return BLOCK_SIZE;
+    }
+
+    @Override
+    protected int engineGetOutputSize(int inputLen) {
+        int total = buffered + inputLen;
+        if (encrypting && usesPadding()) {
+            return total - total % BLOCK_SIZE + BLOCK_SIZE;
+        }
+        return total;
+    }
+
+    @Override
+    protected byte[] engineGetIV() {
+        return iv == null ? null : iv.clone();
+    }
+
+    @Override
+    protected AlgorithmParameters engineGetParameters() {
+        return null; // The JDK has no AlgorithmParameters for IDEA; use getIV()
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, SecureRandom random) throws InvalidKeyException {
+        try {
+            init(opmode, key, null, random);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new InvalidKeyException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, AlgorithmParameterSpec params, SecureRandom random)
+            throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (params != null && !(params instanceof IvParameterSpec)) {
+            throw new InvalidAlgorithmParameterException("IDEA only takes an IvParameterSpec.");
+        }
+        init(opmode, key, params == null ? null : ((IvParameterSpec) params).getIV(), random);
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, AlgorithmParameters params, SecureRandom random)
+            throws InvalidKeyException, InvalidAlgorithmParameterException {
+        byte[] ivBytes = null;
+        if (params != null) {
+            try {
+                ivBytes = params.getParameterSpec(IvParameterSpec.class).getIV();
+            } catch (InvalidParameterSpecException e) {
+                throw new InvalidAlgorithmParameterException("IDEA only takes an IV parameter.", e);
+            }
+        }
+        init(opmode, key, ivBytes, random);
+    }
+
+    private void init(int opmode, Key key, byte[] ivBytes, SecureRandom random)
+            throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (mode == CTR && padding) {
+            // CTR is a stream mode; "IDEA/CTR/PKCS5Padding" makes no sense
+            throw new InvalidAlgorithmParameterException("CTR mode requires NoPadding.");
+        }
+        byte[] raw = key == null ? null : key.getEncoded();
+        if (raw == null || raw.length != IDEAKeySchedule.KEY_SIZE) {
+            throw new InvalidKeyException("IDEA needs a " + IDEAKeySchedule.KEY_SIZE + "-byte key.");
+        }
+        encrypting = opmode == Cipher.ENCRYPT_MODE || opmode == Cipher.WRAP_MODE;
+
+        if (mode == ECB) {
+            if (ivBytes != null) {
+                throw new InvalidAlgorithmParameterException("ECB mode does not take an IV.");
+            }
+            iv = null;
+        } else if (ivBytes != null) {
+            if (ivBytes.length != BLOCK_SIZE) {
+                throw new InvalidAlgorithmParameterException("IV must be " + BLOCK_SIZE + " bytes.");
+            }
+            iv = ivBytes.clone();
+        } else if (encrypting) {
+            iv = new byte[BLOCK_SIZE];
+            (random != null ? random : new SecureRandom()).nextBytes(iv);
+        } else {
+            throw new InvalidAlgorithmParameterException("Decryption in this mode needs an IV.");
+        }
+
+        // A private schedule, not the shared cache: a JCA caller's key must not
+        // outlive this cipher in a process-wide map, nor evict the servlets' keys
+        keySchedule = new IDEAKeySchedule(raw);
+        Arrays.fill(raw, (byte) 0);
+        // CTR only ever runs the block function forwards
+        keys = encrypting || mode == CTR ? keySchedule.encryptKeys() : keySchedule.decryptKeys();
+        reset();
+    }
+
+    /**
+     * Back to the state right after init: same key and IV, nothing buffered.
+     */
+    private void reset() {
+        chain = iv == null ? 0 : Utils.squashBytesToLong(iv, 0);
+        streamPosition = 0;
+        buffered = 0;
+    }
+
+    private boolean usesPadding() {
+        return padding && mode != CTR;
+    }
+
+    @Override
+    protected byte[] engineUpdate(byte[] input, int inputOffset, int inputLen) {
+        byte[] out = new byte[updateLength(inputLen)];
+        int n = update(input, inputOffset, inputLen, out, 0);
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    @Override
+    protected int engineUpdate(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+            throws ShortBufferException {
+        int needed = updateLength(inputLen);
+        if (output == null || output.length - outputOffset < needed) {
+            throw new ShortBufferException("Need " + needed + " bytes of output space.");
+        }
+        return update(input, inputOffset, inputLen, output, outputOffset);
+    }
+
+    @Override
+    protected byte[] engineDoFinal(byte[] input, int inputOffset, int inputLen)
+            throws IllegalBlockSizeException, BadPaddingException {
+        byte[] out = new byte[engineGetOutputSize(inputLen)];
+        int n;
+        try {
+            n = doFinal(input, inputOffset, inputLen, out, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e); // Cannot happen, the buffer was sized above
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    @Override
+    protected int engineDoFinal(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+            throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        return doFinal(input, inputOffset, inputLen, output, outputOffset);
+    }
+
+    /**
+     * How many bytes an update of inputLen bytes writes out now. Decryption
+     * with padding always keeps the last block back for doFinal.
+     */
+    private int updateLength(int inputLen) {
+        int total = buffered + Math.max(inputLen, 0);
+        if (mode == CTR) {
+            return total;
+        }
+        int whole = total - total % BLOCK_SIZE;
+        if (!encrypting && padding && whole == total && whole > 0) {
+            whole -= BLOCK_SIZE;
+        }
+        return whole;
+    }
+
+    private int update(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        if (keys == null) {
+            throw new IllegalStateException("Cipher not initialized");
+        }
+        if (len <= 0) {
+            return 0;
+        }
+        if (in == out && outOff < inOff + len && inOff < outOff + updateLength(len)) {
+            // Overlapping in-place call with a different offset; work from a copy
+            in = Arrays.copyOfRange(in, inOff, inOff + len);
+            inOff = 0;
+        }
+
+        if (mode == CTR) {
+            long start = System.nanoTime();
+            CTRMode.crypt(keys, chain, streamPosition, in, inOff, len, out, outOff, blocks);
+            CipherMetrics.record(encrypting, len, System.nanoTime() - start);
+            streamPosition += len;
+            return len;
+        }
+
+        int toProcess = updateLength(len);
+        int produced = 0;
+        if (buffered > 0 && toProcess > 0) {
+            // Complete the partial block first
+            int take = BLOCK_SIZE - buffered;
+            System.arraycopy(in, inOff, buffer, buffered, take);
+            inOff += take;
+            len -= take;
+            processBlocks(buffer, 0, BLOCK_SIZE, out, outOff);
+            buffered = 0;
+            produced = BLOCK_SIZE;
+            toProcess -= BLOCK_SIZE;
+        }
+        if (toProcess > 0) {
+            processBlocks(in, inOff, toProcess, out, outOff + produced);
+            inOff += toProcess;
+            len -= toProcess;
+            produced += toProcess;
+        }
+        System.arraycopy(in, inOff, buffer, buffered, len);
+        buffered += len;
+        return produced;
+    }
+
+    private int doFinal(byte[] in, int inOff, int len, byte[] out, int outOff)
+            throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        int needed = engineGetOutputSize(len);
+        if (!encrypting && usesPadding()) {
+            needed -= 1; // At least one padding byte comes off
+        }
+        if (out == null || out.length - outOff < needed) {
+            throw new ShortBufferException("Need " + needed + " bytes of output space.");
+        }
+        try {
+            int produced = update(in, inOff, Math.max(len, 0), out, outOff);
+            if (mode == CTR) {
+                return produced;
+            }
+            if (encrypting) {
+                if (!padding) {
+                    if (buffered != 0) {
+                        throw new IllegalBlockSizeException("Input length not a multiple of " + BLOCK_SIZE + " bytes.");
+                    }
+                    return produced;
+                }
+                int paddingNeeded = BLOCK_SIZE - buffered; // A full block when already aligned
+                Arrays.fill(buffer, buffered, BLOCK_SIZE, (byte) paddingNeeded);
+                processBlocks(buffer, 0, BLOCK_SIZE, out, outOff + produced);
+                return produced + BLOCK_SIZE;
+            }
+            if (buffered != (padding ? BLOCK_SIZE : 0)) {
+                throw new IllegalBlockSizeException("Input length not a multiple of " + BLOCK_SIZE + " bytes.");
+            }
+            if (!padding) {
+                return produced;
+            }
+            // Decrypt the held-back block in place, then check and strip the padding
+            processBlocks(buffer, 0, BLOCK_SIZE, buffer, 0);
+            int paddingLength;
+            try {
+                paddingLength = IDEA.checkPadding(buffer, BLOCK_SIZE);
+            } catch (IllegalArgumentException e) {
+                throw new BadPaddingException(e.getMessage());
+            }
+            System.arraycopy(buffer, 0, out, outOff + produced, BLOCK_SIZE - paddingLength);
+            return produced + BLOCK_SIZE - paddingLength;
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+            reset();
+        }
+    }
+
+    /**
+     * ECB or CBC over whole blocks.
+     */
+    private void processBlocks(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        long start = System.nanoTime();
+        if (mode == ECB) {
+            IDEAInterleaved.process(keys, in, inOff, len, out, outOff, blocks);
+        } else if (encrypting) {
+            chain = CBCMode.encryptChain(keys, chain, in, inOff, len, out, outOff);
+        } else {
+            chain = CBCMode.decryptChain(keys, chain, in, inOff, len, out, outOff, blocks, previous);
+        }
+        CipherMetrics.record(encrypting, len, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in micro-batching of small operations that share a key. Concurrent
+ * callers hand in messages and get a future back; messages for the same key
+ * schedule and direction are collected until a short time window has passed
+ * since the first of them arrived, or until they add up to the size cap, and
+ * are then padded side by side and run through the block engine in one bulk
+ * pass (as {@link IDEABatch} does for a framed batch). Each future completes
+ * with exactly what {@link IDEA#encryptBytes} or {@link IDEA#decryptBytes}
+ * would have returned, or with their IllegalArgumentException.
+ *
+ * This trades up to one window of latency for fewer, larger engine calls, so
+ * it only pays off with many concurrent requests per key. Messages at or above
+ * the size cap skip the queue. A batch that reaches the cap runs on the thread
+ * whose message filled it; one that times out runs on the executor (by
+ * default the common fork/join pool, so the timer thread only keeps time).
+ * The caller must not modify a
+ * message until its future has completed.
+ *
+ * Enabled for {@code RunIDEA} with -Didea.coalesce=true; the window and cap
+ * come from {@value #WINDOW_PROPERTY} (microseconds) and
+ * {@value #MAX_BYTES_PROPERTY}. RunIDEA waits twice per request, for the
+ * encryption and then for the decryption of its result, so under light load
+ * each request pays up to two windows, not one.
+ *
+ * @author User
+ */
+public final class IDEACoalescer implements AutoCloseable {
+
+    /**
+     * System property that turns coalescing on in {@link #fromSystemProperties()}.
+     */
+    public static final String ENABLED_PROPERTY = "idea.coalesce";
+
+    /**
+     * System property: the collection window in microseconds.
+     */
+    public static final String WINDOW_PROPERTY = "idea.coalesce.windowMicros";
+
+    /**
+     * System property: the size cap of one batch in bytes.
+     */
+    public static final String MAX_BYTES_PROPERTY = "idea.coalesce.maxBytes";
+
+    public static final long DEFAULT_WINDOW_MICROS = 200;
+    public static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+
+    private static final int BLOCK_SIZE = 8;
+
+    private final long windowNanos;
+    private final int maxBatchBytes;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Executor executor;
+
+    /**
+     * Open lanes, one per key schedule and direction. A lane leaves the map
+     * when its batch is taken, so the maps only hold keys with work pending.
+     */
+    private final ConcurrentMap<IDEAKeySchedule, Lane> encryptLanes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<IDEAKeySchedule, Lane> decryptLanes = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor, default window and cap.
+     */
+    public IDEACoalescer() {
+        this(DEFAULT_WINDOW_MICROS, DEFAULT_MAX_BATCH_BYTES, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windowMicros How long a batch stays open after its first message, in microseconds.
+     * @param maxBatchBytes The clear or cipher text size at which a batch runs at once.
+     * @param executor Runs batches whose window expired; null for the common fork/join pool.
+     */
+    public IDEACoalescer(long windowMicros, int maxBatchBytes, Executor executor) {
+        if (windowMicros < 0 || maxBatchBytes < BLOCK_SIZE) {
+            throw new IllegalArgumentException("Window cannot be negative and the cap must hold a block.");
+        }
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchBytes = maxBatchBytes;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "idea-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+    }
+
+    /**
+     * Builds a coalescer from the system properties.
+     *
+     * @return The coalescer, or null unless {@value #ENABLED_PROPERTY} is true.
+     */
+    public static IDEACoalescer fromSystemProperties() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return null;
+        }
+        return new IDEACoalescer(Long.getLong(WINDOW_PROPERTY, DEFAULT_WINDOW_MICROS),
+                Integer.getInteger(MAX_BYTES_PROPERTY, DEFAULT_MAX_BATCH_BYTES), null);
+    }
+
+    /**
+     * Queues a message for encryption with PKCS#7 padding.
+     *
+     * @param cipher The cipher (key) to use.
+     * @param data The clear text buffer.
+     * @param off The offset of the clear text.
+     * @param len The length of the clear text.
+     * @return Completes with the padded cipher text.
+     */
+    public CompletableFuture<byte[]> encrypt(IDEA cipher, byte[] data, int off, int len) {
+        return submit(encryptLanes, cipher, data, off, len, true);
+    }
+
+    /**
+     * Queues a message for decryption; its padding is checked and stripped.
+     *
+     * @param cipher The cipher (key) to use.
+     * @param data The cipher text buffer.
+     * @param off The offset of the cipher text.
+     * @param len The length of the cipher text.
+     * @return Completes with the clear text, or exceptionally with an
+     *         IllegalArgumentException if the length or the padding is invalid.
+     */
+    public CompletableFuture<byte[]> decrypt(IDEA cipher, byte[] data, int off, int len) {
+        if (len == 0 || len % BLOCK_SIZE != 0) {
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            CipherMetrics.INVALID_PADDING.increment();
+            future.completeExceptionally(new IllegalArgumentException("Encrypted length is not a multiple of block size."));
+            return future;
+        }
+        return submit(decryptLanes, cipher, data, off, len, false);
+    }
+
+    /**
+     * Runs everything still queued and stops the timer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ConcurrentMap<IDEAKeySchedule, Lane> lanes : Arrays.asList(encryptLanes, decryptLanes)) {
+            for (Lane lane : lanes.values()) {
+                List<Op> batch = lane.take();
+                if (batch != null) {
+                    run(lane, batch);
+                }
+            }
+            lanes.clear();
+        }
+        timer.shutdown();
+    }
+
+    private CompletableFuture<byte[]> submit(ConcurrentMap<IDEAKeySchedule, Lane> lanes, IDEA cipher,
+            byte[] data, int off, int len, boolean encrypting) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        Op op = new Op(data, off, len);
+        if (closed || len >= maxBatchBytes) {
+            run(new Lane(cipher, encrypting), Collections.singletonList(op)); // Nothing to gain from waiting
+            return op.future;
+        }
+        IDEAKeySchedule schedule = cipher.getKeySchedule();
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(schedule, s -> new Lane(cipher, encrypting));
+            List<Op> full;
+            synchronized (lane) {
+                if (lane.ops == null) {
+                    lanes.remove(schedule, lane); // Taken between the lookup and the lock; open a new lane
+                    continue;
+                }
+                lane.ops.add(op);
+                lane.bytes += len;
+                if (lane.bytes < maxBatchBytes && !closed) { // Closed: close() may have drained the lanes already
+                    if (lane.ops.size() > 1 || schedule(lanes, lane)) {
+                        return op.future;
+                    }
+                }
+                full = lane.take();
+                lanes.remove(schedule, lane);
+            }
+            run(lane, full);
+            return op.future;
+        }
+    }
+
+    /**
+     * Starts the window of a lane's first message.
+     *
+     * @return False if the timer has been shut down; the caller runs the batch.
+     */
+    private boolean schedule(ConcurrentMap<IDEAKeySchedule, Lane> lanes, Lane lane) {
+        try {
+            timer.schedule(() -> expire(lanes, lane), windowNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Timer task: the window of a batch has passed.
+     */
+    private void expire(ConcurrentMap<IDEAKeySchedule, Lane> lanes, Lane lane) {
+        List<Op> batch;
+        synchronized (lane) {
+            batch = lane.take();
+            if (batch == null) {
+                return; // Already run because it filled up
+            }
+            lanes.remove(lane.cipher.getKeySchedule(), lane);
+        }
+        try {
+            executor.execute(() -> run(lane, batch));
+        } catch (RejectedExecutionException e) {
+            run(lane, batch);
+        }
+    }
+
+    /**
+     * One bulk pass over a batch, then completes every future.
+     */
+    private static void run(Lane lane, List<Op> batch) {
+        try {
+            if (lane.encrypting) {
+                encryptBatch(lane.cipher, batch);
+            } else {
+                decryptBatch(lane.cipher, batch);
+            }
+            CipherMetrics.COALESCED_BATCHES.increment();
+            CipherMetrics.COALESCED_OPERATIONS.add(batch.size());
+        } catch (RuntimeException | Error e) {
+            for (Op op : batch) {
+                op.future.completeExceptionally(e);
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    private static void encryptBatch(IDEA cipher, List<Op> batch) {
+        int total = 0;
+        for (Op op : batch) {
+            total += op.len + BLOCK_SIZE - op.len % BLOCK_SIZE;
+        }
+        byte[] work = new byte[total];
+        for (int i = 0, w = 0; i < batch.size(); ++i) {
+            Op op = batch.get(i);
+            System.arraycopy(op.data, op.off, work, w, op.len);
+            int paddingNeeded = BLOCK_SIZE - op.len % BLOCK_SIZE; // A full block when already aligned
+            Arrays.fill(work, w + op.len, w + op.len + paddingNeeded, (byte) paddingNeeded);
+            w += op.len + paddingNeeded;
+        }
+        cipher.encryptBlocks(work, 0, work.length, work, 0);
+        for (int i = 0, w = 0; i < batch.size(); ++i) {
+            Op op = batch.get(i);
+            int cipherLength = op.len + BLOCK_SIZE - op.len % BLOCK_SIZE;
+            op.future.complete(Arrays.copyOfRange(work, w, w + cipherLength));
+            w += cipherLength;
+        }
+    }
+
+    private static void decryptBatch(IDEA cipher, List<Op> batch) {
+        int total = 0;
+        for (Op op : batch) {
+            total += op.len;
+        }
+        byte[] work = new byte[total];
+        for (int i = 0, w = 0; i < batch.size(); ++i) {
+            Op op = batch.get(i);
+            System.arraycopy(op.data, op.off, work, w, op.len);
+            w += op.len;
+        }
+        cipher.decryptBlocks(work, 0, work.length, work, 0);
+        for (int i = 0, w = 0; i < batch.size(); ++i) {
+            Op op = batch.get(i);
+            w += op.len;
+            try {
+                op.future.complete(Arrays.copyOfRange(work, w - op.len, w - IDEA.checkPadding(work, w)));
+            } catch (IllegalArgumentException e) {
+                op.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * The open batch of one key and direction. Guarded by its own lock.
+     */
+    private static final class Lane {
+
+        final IDEA cipher;
+        final boolean encrypting;
+        List<Op> ops = new ArrayList<>();
+        int bytes;
+
+        Lane(IDEA cipher, boolean encrypting) {
+            this.cipher = cipher;
+            this.encrypting = encrypting;
+        }
+
+        /**
+         * Closes the lane for good and hands over its batch. A lane is used
+         * once; later messages for the key open a new one.
+         *
+         * @return The batch, or null if it was already taken.
+         */
+        synchronized List<Op> take() {
+            List<Op> batch = ops;
+            ops = null;
+            return batch;
+        }
+    }
+
+    private static final class Op {
+
+        final byte[] data;
+        final int off;
+        final int len;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        Op(byte[] data, int off, int len) {
+            this.data = data;
+            this.off = off;
+            this.len = len;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that IDEA-decrypts cipher text read from another stream, i.e.
+ * the reverse of {@link IDEAOutputStream} (and of {@link IDEA#encrypt(String)}).
+ * Works through a fixed-size buffer. The last block is held back until the end
+ * of the underlying stream is seen, and only then is the PKCS#7 padding checked
+ * and stripped. A bad length or padding throws an IOException, on that read
+ * and on every later one.
+ *
+ * @author User
+ */
+public class IDEAInputStream extends FilterInputStream {
+
+    private final IDEA cipher;
+    private final int blockSize;
+    private final byte[] buffer;
+
+    /**
+     * buffer[pos, limit) is decrypted data ready to hand out; buffer[limit, filled)
+     * is cipher text read ahead (at least the held-back last block).
+     */
+    private int pos;
+    private int limit;
+    private int filled;
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * The failed length or padding check, thrown again by every later read so
+     * that a rejected stream never looks like a clean end of stream.
+     */
+    private IOException failure;
+
+    /**
+     * Constructor.
+     *
+     * @param in The stream that supplies the cipher text.
+     * @param cipher The cipher to decrypt with.
+     */
+    public IDEAInputStream(InputStream in, IDEA cipher) {
+        this(in, cipher, IDEAOutputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param in The stream that supplies the cipher text.
+     * @param cipher The cipher to decrypt with.
+     * @param bufferSize The internal buffer size in bytes; rounded down to whole blocks.
+     */
+    public IDEAInputStream(InputStream in, IDEA cipher, int bufferSize) {
+        super(in);
+        this.cipher = cipher;
+        this.blockSize = cipher.blockSize;
+        if (bufferSize < 2 * blockSize) {
+            throw new IllegalArgumentException("Buffer must hold at least two blocks.");
+        }
+        this.buffer = new byte[bufferSize - bufferSize % blockSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || b.length - off < len) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureData()) {
+            int step = (int) Math.min(n - skipped, limit - pos);
+            pos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return limit - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        in.close();
+    }
+
+    /**
+     * Makes sure there is decrypted data to hand out, reading and decrypting
+     * more cipher text as needed.
+     *
+     * @return false at the end of the plain text.
+     */
+    private boolean ensureData() throws IOException {
+        ensureOpen();
+        if (failure != null) {
+            throw failure;
+        }
+        while (pos == limit) {
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Reads cipher text until at least one block can be released (or the
+     * underlying stream ends), then decrypts what can be released.
+     */
+    private void fill() throws IOException {
+        // Keep the unreleased cipher text, drop what has been handed out
+        filled -= limit;
+        System.arraycopy(buffer, limit, buffer, 0, filled);
+        pos = limit = 0;
+
+        while (true) {
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n < 0) {
+                try {
+                    finish();
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                return;
+            }
+            filled += n;
+            // Everything but the last whole block is safe to release
+            int release = filled - filled % blockSize - blockSize;
+            if (release > 0) {
+                cipher.decryptBlocks(buffer, 0, release, buffer, 0);
+                limit = release;
+                return;
+            }
+        }
+    }
+
+    /**
+     * End of the cipher text: decrypt the rest and strip the padding.
+     */
+    private void finish() throws IOException {
+        eof = true;
+        if (filled == 0) {
+            return; // Empty cipher text, empty plain text (as IDEA.encrypt(""))
+        }
+        if (filled % blockSize != 0) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IOException("Encrypted stream length is not a multiple of block size.");
+        }
+        cipher.decryptBlocks(buffer, 0, filled, buffer, 0);
+
+        int paddingLength;
+        try {
+            paddingLength = IDEA.checkPadding(buffer, filled);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        limit = filled - paddingLength;
+        filled = limit;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
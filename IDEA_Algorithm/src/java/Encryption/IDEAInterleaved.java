@@ -0,0 +1,268 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Multi-block IDEA engine. Runs the same round function as {@link IDEA#idea}
+ * on {@value #LANES} independent blocks at once, with the statements of the
+ * lanes interleaved. A single block is one long dependency chain; four of them
+ * side by side give the CPU independent work to overlap, so the bulk ECB and
+ * CTR paths go noticeably faster while producing exactly the same output.
+ *
+ * The bulk paths reach it through {@link #ENGINE}, which is the SIMD engine
+ * built on the Java Vector API when that is available (see
+ * {@code src/vector}) and this scalar interleaved engine otherwise. Set
+ * {@code -Didea.engine=scalar} to force the scalar engine.
+ *
+ * @author User
+ */
+final class IDEAInterleaved {
+
+    /**
+     * Number of blocks processed per call.
+     */
+    static final int LANES = 4;
+
+    /**
+     * System property selecting the bulk engine: "auto" (default), "vector" or "scalar".
+     */
+    static final String ENGINE_PROPERTY = "idea.engine";
+
+    /**
+     * Class name of the optional Vector API engine. It is compiled separately
+     * (it needs JDK 16+ and the jdk.incubator.vector module), so it is only
+     * ever loaded by name.
+     */
+    private static final String VECTOR_ENGINE = "Encryption.IDEAVectorEngine";
+
+    /**
+     * The scalar interleaved engine.
+     */
+    static final MultiBlockEngine SCALAR = new Scalar();
+
+    /**
+     * The engine used by the bulk ECB and CTR paths.
+     */
+    static final MultiBlockEngine ENGINE = selectEngine();
+
+    /**
+     * Per-thread scratch of {@link MultiBlockEngine#batchBlocks()} blocks for
+     * the bulk paths that are not given one by their caller, so repeated calls
+     * do not allocate. Only for code that does not call back into another user
+     * of it while holding it.
+     */
+    static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[ENGINE.batchBlocks()]);
+
+    private IDEAInterleaved() {
+    }
+
+    /**
+     * Picks the Vector API engine when it can be loaded and passes a self-check
+     * against the scalar code, and the scalar engine otherwise.
+     */
+    private static MultiBlockEngine selectEngine() {
+        String choice = System.getProperty(ENGINE_PROPERTY, "auto");
+        if ("scalar".equalsIgnoreCase(choice)) {
+            return SCALAR;
+        }
+        try {
+            MultiBlockEngine vector = (MultiBlockEngine) Class.forName(VECTOR_ENGINE).getDeclaredConstructor().newInstance();
+            if (agreesWithScalar(vector)) {
+                return vector;
+            }
+            System.err.println("Warning: " + VECTOR_ENGINE + " disagrees with the scalar engine; not using it.");
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Not built, or the jdk.incubator.vector module is not present (needs --add-modules)
+            if ("vector".equalsIgnoreCase(choice)) {
+                System.err.println("Warning: Vector API engine unavailable (" + e + "); using the scalar engine.");
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Warning: Vector API engine failed to start (" + e + "); using the scalar engine.");
+        }
+        return SCALAR;
+    }
+
+    /**
+     * Cross-checks an engine against the scalar code on a batch of blocks
+     * under both an encryption and a decryption schedule.
+     */
+    private static boolean agreesWithScalar(MultiBlockEngine engine) {
+        IDEAKeySchedule schedule = new IDEAKeySchedule("self-check key!!".getBytes(StandardCharsets.US_ASCII));
+        int count = 3 * engine.batchBlocks() + 5;
+        long[] expected = new long[count];
+        long[] actual = new long[count];
+        for (int[] keys : new int[][]{schedule.encryptKeys(), schedule.decryptKeys()}) {
+            long seed = 0x9e3779b97f4a7c15L;
+            for (int i = 0; i < count; ++i) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                expected[i] = seed;
+                actual[i] = seed;
+            }
+            expected[0] = 0; // Exercise the 0-means-2^16 corner
+            actual[0] = 0;
+            SCALAR.idea(expected, 0, count, keys);
+            for (int off = 0; off < count; off += engine.batchBlocks()) {
+                engine.idea(actual, off, Math.min(engine.batchBlocks(), count - off), keys);
+            }
+            if (!Arrays.equals(expected, actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run IDEA on {@value #LANES} blocks in place. Blocks are packed into longs
+     * the same way as for {@link IDEA#idea}.
+     *
+     * @param blocks The blocks; blocks[off] to blocks[off + 3] are replaced by their output.
+     * @param off    The index of the first block.
+     * @param keys   The array of round keys (either encrypt or decrypt keys).
+     */
+    static void idea(long[] blocks, int off, int[] keys) {
+        long a0 = blocks[off + 0];
+        int x1a = (int) (a0 >>> 48) & 0xffff, x2a = (int) (a0 >>> 32) & 0xffff, x3a = (int) (a0 >>> 16) & 0xffff, x4a = (int) a0 & 0xffff;
+        long b0 = blocks[off + 1];
+        int x1b = (int) (b0 >>> 48) & 0xffff, x2b = (int) (b0 >>> 32) & 0xffff, x3b = (int) (b0 >>> 16) & 0xffff, x4b = (int) b0 & 0xffff;
+        long c0 = blocks[off + 2];
+        int x1c = (int) (c0 >>> 48) & 0xffff, x2c = (int) (c0 >>> 32) & 0xffff, x3c = (int) (c0 >>> 16) & 0xffff, x4c = (int) c0 & 0xffff;
+        long d0 = blocks[off + 3];
+        int x1d = (int) (d0 >>> 48) & 0xffff, x2d = (int) (d0 >>> 32) & 0xffff, x3d = (int) (d0 >>> 16) & 0xffff, x4d = (int) d0 & 0xffff;
+        int t1a, t1b, t1c, t1d, t2a, t2b, t2c, t2d, na, nb, nc, nd;
+        int k = 0;
+
+        for (int round = 0; round < 8; ++round) { // 8 full rounds
+            int k1 = keys[k++], k2 = keys[k++], k3 = keys[k++], k4 = keys[k++], k5 = keys[k++], k6 = keys[k++];
+
+            x1a = IDEA.multiplicationModulo65537(x1a & 0xffff, k1);
+            x1b = IDEA.multiplicationModulo65537(x1b & 0xffff, k1);
+            x1c = IDEA.multiplicationModulo65537(x1c & 0xffff, k1);
+            x1d = IDEA.multiplicationModulo65537(x1d & 0xffff, k1);
+            x2a = (x2a + k2) & 0xffff;
+            x2b = (x2b + k2) & 0xffff;
+            x2c = (x2c + k2) & 0xffff;
+            x2d = (x2d + k2) & 0xffff;
+            x3a = (x3a + k3) & 0xffff;
+            x3b = (x3b + k3) & 0xffff;
+            x3c = (x3c + k3) & 0xffff;
+            x3d = (x3d + k3) & 0xffff;
+            x4a = IDEA.multiplicationModulo65537(x4a & 0xffff, k4);
+            x4b = IDEA.multiplicationModulo65537(x4b & 0xffff, k4);
+            x4c = IDEA.multiplicationModulo65537(x4c & 0xffff, k4);
+            x4d = IDEA.multiplicationModulo65537(x4d & 0xffff, k4);
+
+            t2a = IDEA.multiplicationModulo65537((x1a ^ x3a) & 0xffff, k5);
+            t2b = IDEA.multiplicationModulo65537((x1b ^ x3b) & 0xffff, k5);
+            t2c = IDEA.multiplicationModulo65537((x1c ^ x3c) & 0xffff, k5);
+            t2d = IDEA.multiplicationModulo65537((x1d ^ x3d) & 0xffff, k5);
+            t1a = IDEA.multiplicationModulo65537((t2a + (x2a ^ x4a)) & 0xffff, k6);
+            t1b = IDEA.multiplicationModulo65537((t2b + (x2b ^ x4b)) & 0xffff, k6);
+            t1c = IDEA.multiplicationModulo65537((t2c + (x2c ^ x4c)) & 0xffff, k6);
+            t1d = IDEA.multiplicationModulo65537((t2d + (x2d ^ x4d)) & 0xffff, k6);
+            t2a = (t1a + t2a) & 0xffff;
+            t2b = (t1b + t2b) & 0xffff;
+            t2c = (t1c + t2c) & 0xffff;
+            t2d = (t1d + t2d) & 0xffff;
+
+            x1a ^= t1a;
+            x1b ^= t1b;
+            x1c ^= t1c;
+            x1d ^= t1d;
+            x4a ^= t2a;
+            x4b ^= t2b;
+            x4c ^= t2c;
+            x4d ^= t2d;
+            na = x3a ^ t1a;
+            nb = x3b ^ t1b;
+            nc = x3c ^ t1c;
+            nd = x3d ^ t1d;
+            x3a = x2a ^ t2a;
+            x3b = x2b ^ t2b;
+            x3c = x2c ^ t2c;
+            x3d = x2d ^ t2d;
+            x2a = na;
+            x2b = nb;
+            x2c = nc;
+            x2d = nd;
+        }
+
+        // Final output transformation, x2 and x3 swapped back as in IDEA.idea
+        int k1 = keys[k++], k2 = keys[k++], k3 = keys[k++], k4 = keys[k];
+        blocks[off + 0] = ((long) (IDEA.multiplicationModulo65537(x1a & 0xffff, k1) & 0xffff) << 48)
+                | ((long) ((x3a + k2) & 0xffff) << 32)
+                | ((long) ((x2a + k3) & 0xffff) << 16)
+                | (IDEA.multiplicationModulo65537(x4a & 0xffff, k4) & 0xffff);
+        blocks[off + 1] = ((long) (IDEA.multiplicationModulo65537(x1b & 0xffff, k1) & 0xffff) << 48)
+                | ((long) ((x3b + k2) & 0xffff) << 32)
+                | ((long) ((x2b + k3) & 0xffff) << 16)
+                | (IDEA.multiplicationModulo65537(x4b & 0xffff, k4) & 0xffff);
+        blocks[off + 2] = ((long) (IDEA.multiplicationModulo65537(x1c & 0xffff, k1) & 0xffff) << 48)
+                | ((long) ((x3c + k2) & 0xffff) << 32)
+                | ((long) ((x2c + k3) & 0xffff) << 16)
+                | (IDEA.multiplicationModulo65537(x4c & 0xffff, k4) & 0xffff);
+        blocks[off + 3] = ((long) (IDEA.multiplicationModulo65537(x1d & 0xffff, k1) & 0xffff) << 48)
+                | ((long) ((x3d + k2) & 0xffff) << 32)
+                | ((long) ((x2d + k3) & 0xffff) << 16)
+                | (IDEA.multiplicationModulo65537(x4d & 0xffff, k4) & 0xffff);
+    }
+
+    /**
+     * Encrypts or decrypts whole blocks between byte arrays, a batch at a time
+     * through {@link #ENGINE}, in this thread's {@link #SCRATCH}.
+     *
+     * @param keys The round keys.
+     * @param in The input buffer.
+     * @param inOff The offset in the input buffer.
+     * @param len The number of bytes; a multiple of 8.
+     * @param out The output buffer; may be the input buffer.
+     * @param outOff The offset in the output buffer.
+     */
+    static void process(int[] keys, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        process(keys, in, inOff, len, out, outOff, SCRATCH.get());
+    }
+
+    /**
+     * As {@link #process(int[], byte[], int, int, byte[], int)}, with a caller-owned
+     * scratch array (any length &gt; 0), for callers that keep their own.
+     */
+    static void process(int[] keys, byte[] in, int inOff, int len, byte[] out, int outOff, long[] blocks) {
+        MultiBlockEngine engine = ENGINE;
+        BlockCodec codec = BlockCodec.CODEC;
+        for (int remaining = len / 8; remaining > 0;) {
+            int count = Math.min(remaining, blocks.length);
+            codec.getLongs(in, inOff, blocks, 0, count);
+            engine.idea(blocks, 0, count, keys);
+            codec.putLongs(blocks, 0, out, outOff, count);
+            inOff += count * 8;
+            outOff += count * 8;
+            remaining -= count;
+        }
+    }
+
+    /**
+     * The scalar engine: {@value #LANES} blocks at a time, one at a time for the rest.
+     */
+    private static final class Scalar implements MultiBlockEngine {
+
+        @Override
+        public int batchBlocks() {
+            return 16 * LANES;
+        }
+
+        @Override
+        public void idea(long[] blocks, int off, int count, int[] keys) {
+            int end = off + count;
+            for (; end - off >= LANES; off += LANES) {
+                IDEAInterleaved.idea(blocks, off, keys);
+            }
+            for (; off < end; ++off) {
+                blocks[off] = IDEA.idea(blocks[off], keys);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+/**
+ * Arithmetic kernels for IDEA: multiplication modulo 2^16+1 and its inverse,
+ * where the 16-bit value 0 stands for 2^16.
+ *
+ * Two implementations are kept side by side. The reference one is the
+ * original long-division / extended-Euclid code. The fast one uses the
+ * low/high word trick (2^16 is -1 mod 2^16+1, so hi*2^16 + lo is lo - hi)
+ * with no divisions and no data-dependent branches, which also keeps its
+ * running time independent of the operands; the inverse is x^(2^16-1) by
+ * Fermat, 30 fast multiplications in a fixed sequence.
+ *
+ * Both return the same value in the low 16 bits for every operand pair.
+ * The fast kernel is the default; run with {@code -Didea.kernel=reference}
+ * to select the original code.
+ *
+ * @author User
+ */
+public final class IDEAKernel {
+
+    /**
+     * System property selecting the kernel: "fast" (default) or "reference".
+     */
+    public static final String PROPERTY = "idea.kernel";
+
+    /**
+     * True when the fast kernel is selected. Constant, so the JIT drops the unused branch.
+     */
+    static final boolean FAST = !"reference".equalsIgnoreCase(System.getProperty(PROPERTY, "fast"));
+
+    private IDEAKernel() {
+    }
+
+    /**
+     * @return The name of the kernel in use, "fast" or "reference".
+     */
+    public static String selected() {
+        return FAST ? "fast" : "reference";
+    }
+
+    /**
+     * Multiplication modulo 65537, fast version. Division- and branch-free.
+     *
+     * @param a 16-bit operand, 0 meaning 2^16
+     * @param b 16-bit operand, 0 meaning 2^16
+     * @return The 16-bit product, 0 meaning 2^16
+     */
+    public static int mulFast(int a, int b) {
+        a &= 0xffff;
+        b &= 0xffff;
+        // Map 0 to 0x10000 without branching: (a - 1) >>> 31 is 1 only for a == 0
+        long x = a | (((a - 1) >>> 31) << 16);
+        long y = b | (((b - 1) >>> 31) << 16);
+
+        long p = x * y;                     // At most 2^32, fits a long
+        long r = (p & 0xffff) - (p >>> 16); // lo - hi, in [-65536, 65535]
+        r += (r >> 63) & 65537L;            // Add the modulus back if negative
+        return (int) r & 0xffff;            // 0x10000 folds to 0
+    }
+
+    /**
+     * The multiplicative inverse of x, modulo 65537, fast version.
+     * x^(65537 - 2) by square-and-multiply over the fixed exponent 0xffff.
+     *
+     * @param x 16-bit value, 0 meaning 2^16
+     * @return The 16-bit inverse, 0 meaning 2^16
+     */
+    public static int mulinvFast(int x) {
+        int r = x & 0xffff;
+        for (int i = 0; i < 15; ++i) {
+            r = mulFast(mulFast(r, r), x);
+        }
+        return r;
+    }
+
+    /**
+     * Multiplication modulo 65537, reference version. Widens to long and
+     * divides; may return 0x10000 for a product congruent to -1.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public static int mulReference(int a, int b) {
+        // Ensure inputs are 16-bit
+        a &= 0xffff;
+        b &= 0xffff;
+
+        if (a == 0) { // 0x0000 in Z_65537* is 0x10000 (65536) in usual arithmetic
+            a = 0x10000;
+        }
+        if (b == 0) {
+            b = 0x10000;
+        }
+
+        long ab = (long) a * b; // Use long to prevent overflow before modulo
+        long r = ab % 65537L;
+
+        return (int) r;
+    }
+
+    /**
+     * The multiplicative inverse of x, modulo 65537, reference version. Uses Euclid's GCD
+     * algorithm. It is unrolled twice to avoid swapping the meaning of the
+     * registers each iteration, and some subtracts of t have been changed to
+     * adds.
+     *
+     * @param x
+     * @return
+     */
+    public static int mulinvReference(int x) {
+        int t0, t1, q, y;
+        if (x <= 1) { // 0 and 1 are self-inverse for Z_65537* (where 0 maps to 65536)
+            return x; // For 0, it's 0x10000, for 1, it's 1
+        }
+
+        // Euclid's Extended GCD algorithm for (a, m) where m = 65537 (prime)
+        // We want a * x + m * y = gcd(a, m) = 1
+        // x is the inverse of a modulo m
+        t0 = 1; // Represents coefficient for m (initially 1)
+        t1 = 0; // Represents coefficient for a (initially 0)
+
+        int modulus = 65537;
+        int current_a = modulus;
+        int current_b = x; // The number we want inverse of
+
+        // Loop until current_b becomes 0 or 1
+        // The original code's unrolling makes it slightly less readable
+        // I'll re-implement based on standard extended Euclidean algorithm
+        // for clarity, then you can optimize if needed.
+
+        // Initialize variables for extended Euclidean algorithm
+        // r_i = q_i * r_{i+1} + r_{i+2}
+        // x_i = x_{i-2} - q_{i-1} * x_{i-1}
+        // y_i = y_{i-2} - q_{i-1} * y_{i-1}
+
+        int r0 = modulus;
+        int r1 = x;
+        int x0 = 1;
+        int x1 = 0;
+        int y0 = 0;
+        int y1 = 1;
+
+        while (r1 != 0) {
+            q = r0 / r1; // Quotient
+            int temp_r = r0 % r1;
+            r0 = r1;
+            r1 = temp_r;
+
+            int temp_x = x0 - q * x1;
+            x0 = x1;
+            x1 = temp_x;
+
+            int temp_y = y0 - q * y1;
+            y0 = y1;
+            y1 = temp_y;
+        }
+
+        // At this point, r0 is GCD, and y0 is the inverse.
+        // We need to ensure the result is positive and within 16 bits.
+        // If x was 0x0000 (interpreted as 0x10000), its inverse is 0x10000.
+        // The algorithm usually gives a negative inverse for some cases,
+        // so we need to adjust it to be in the positive range [1, 65536].
+        return (y0 + modulus) % modulus; // Ensure it's positive and within range
+    }
+}
\ No newline at end of file
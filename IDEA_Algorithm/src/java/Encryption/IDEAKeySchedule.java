@@ -0,0 +1,150 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+/**
+ * Immutable IDEA key schedule: the 52 encryption subkeys and the 52 inverted
+ * decryption subkeys derived from one 16-byte key. Computing the schedule
+ * (including 18 multiplicative inverses) is the expensive part of creating an
+ * {@link IDEA} instance, so build it once per key and share it. The decryption
+ * half is only derived the first time it is asked for, since many keys are
+ * never used to decrypt.
+ *
+ * @author User
+ */
+public final class IDEAKeySchedule {
+
+    /**
+     * How big a key is in bytes.
+     */
+    public static final int KEY_SIZE = 16;
+
+    /**
+     * Key routines. decryptKeys is filled in lazily; racing threads may both
+     * compute it, which is harmless as the result is identical.
+     */
+    private final int[] encryptKeys;
+    private volatile int[] decryptKeys;
+
+    /**
+     * Derives the encryption subkeys.
+     *
+     * @param key The 16-byte key (only the first 16 bytes are used).
+     */
+    public IDEAKeySchedule(byte[] key) {
+        if (key == null || key.length < KEY_SIZE) {
+            throw new IllegalArgumentException("IDEA needs a " + KEY_SIZE + "-byte key.");
+        }
+        long start = System.nanoTime();
+        int[] encryptKeys = new int[52];
+        int k1;
+
+        // Encryption keys. The first 8 key values come from the 16
+        // user-supplied key bytes.
+        // Note: key is a byte[16], so 2 * k1 goes up to 14.
+        for (k1 = 0; k1 < 8; ++k1) {
+            encryptKeys[k1] = ((key[2 * k1] & 0xff) << 8) | (key[2 * k1 + 1] & 0xff);
+        }
+
+        // Subsequent key values are the previous values rotated to the
+        // left by 25 bits (9 bits left, 7 bits right from a 16-bit word)
+        // 0xffff ensures it stays within 16 bits.
+        for (; k1 < 52; ++k1) {
+            encryptKeys[k1] = ((encryptKeys[k1 - 8] << 9) | (encryptKeys[k1 - 7] >>> 7)) & 0xffff;
+        }
+
+        this.encryptKeys = encryptKeys;
+        CipherMetrics.KEY_SCHEDULE_LATENCY.observe(System.nanoTime() - start);
+    }
+
+    /**
+     * Derives the decryption subkeys. These are the encryption keys, inverted
+     * and in reverse order.
+     *
+     * @param encryptKeys The 52 encryption subkeys.
+     * @return The 52 decryption subkeys.
+     */
+    private static int[] invertKeys(int[] encryptKeys) {
+        int[] decryptKeys = new int[52];
+        int k1, k2, j;
+        int t1, t2, t3;
+
+        k1 = 0;
+        k2 = 51;
+        // First 4 keys (Round 9 output transformation and Round 8 last key)
+        t1 = mulinv(encryptKeys[k1++]); // Z1 * X1 -> Z1^-1 * X1
+        t2 = -encryptKeys[k1++];       // Z2 + X2 -> -Z2 + X2
+        t3 = -encryptKeys[k1++];       // Z3 + X3 -> -Z3 + X3
+        decryptKeys[k2--] = mulinv(encryptKeys[k1++]); // Z4 * X4 -> Z4^-1 * X4
+        decryptKeys[k2--] = t3;
+        decryptKeys[k2--] = t2;
+        decryptKeys[k2--] = t1;
+
+        // Rounds 1-8 decryption keys
+        for (j = 1; j < 8; ++j) {
+            t1 = encryptKeys[k1++]; // Z5 (for next round input transformation)
+            decryptKeys[k2--] = encryptKeys[k1++]; // Z6
+            decryptKeys[k2--] = t1; // Z5
+
+            t1 = mulinv(encryptKeys[k1++]); // Z1
+            t2 = -encryptKeys[k1++];       // Z2
+            t3 = -encryptKeys[k1++];       // Z3
+            decryptKeys[k2--] = mulinv(encryptKeys[k1++]); // Z4
+            decryptKeys[k2--] = t2;
+            decryptKeys[k2--] = t3;
+            decryptKeys[k2--] = t1;
+        }
+        // Last 4 keys (Round 0 output transformation - which is Round 1 input inverse)
+        t1 = encryptKeys[k1++];
+        decryptKeys[k2--] = encryptKeys[k1++];
+        decryptKeys[k2--] = t1;
+        t1 = mulinv(encryptKeys[k1++]);
+        t2 = -encryptKeys[k1++];
+        t3 = -encryptKeys[k1++];
+        decryptKeys[k2--] = mulinv(encryptKeys[k1++]);
+        decryptKeys[k2--] = t3;
+        decryptKeys[k2--] = t2;
+        decryptKeys[k2--] = t1;
+        return decryptKeys;
+    }
+
+    /**
+     * The encryption subkeys. Shared, not copied: callers in this package must
+     * treat the array as read-only.
+     *
+     * @return The 52 encryption subkeys.
+     */
+    int[] encryptKeys() {
+        return encryptKeys;
+    }
+
+    /**
+     * The decryption subkeys, computed on first use. Shared, not copied: callers in this package must
+     * treat the array as read-only.
+     *
+     * @return The 52 decryption subkeys.
+     */
+    int[] decryptKeys() {
+        int[] keys = decryptKeys;
+        if (keys == null) {
+            long start = System.nanoTime();
+            keys = invertKeys(encryptKeys);
+            CipherMetrics.KEY_SCHEDULE_LATENCY.observe(System.nanoTime() - start);
+            decryptKeys = keys;
+        }
+        return keys;
+    }
+
+    /**
+     * The multiplicative inverse of x, modulo 65537. Dispatches to the kernel
+     * selected in {@link IDEAKernel}.
+     *
+     * @param x
+     * @return
+     */
+    private static int mulinv(int x) {
+        return IDEAKernel.FAST ? IDEAKernel.mulinvFast(x) : IDEAKernel.mulinvReference(x);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that IDEA-encrypts everything written to it before passing it
+ * on. Produces the same ECB/PKCS#7 bytes as {@link IDEA#encryptBytes} on the
+ * whole message, but through a fixed-size buffer, so memory use does not
+ * depend on the message size. The padding block is written by {@link #close()},
+ * so an empty message becomes one full padding block; this differs from
+ * {@link IDEA#encrypt(String)}, which returns "" for "".
+ *
+ * @author User
+ */
+public class IDEAOutputStream extends FilterOutputStream {
+
+    /**
+     * Default internal buffer size in bytes (a multiple of the block size).
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final IDEA cipher;
+    private final int blockSize;
+    private final byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param out The stream that receives the cipher text.
+     * @param cipher The cipher to encrypt with.
+     */
+    public IDEAOutputStream(OutputStream out, IDEA cipher) {
+        this(out, cipher, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out The stream that receives the cipher text.
+     * @param cipher The cipher to encrypt with.
+     * @param bufferSize The internal buffer size in bytes; rounded down to whole blocks.
+     */
+    public IDEAOutputStream(OutputStream out, IDEA cipher, int bufferSize) {
+        super(out);
+        this.cipher = cipher;
+        this.blockSize = cipher.blockSize;
+        if (bufferSize < blockSize) {
+            throw new IllegalArgumentException("Buffer must hold at least one block.");
+        }
+        this.buffer = new byte[bufferSize - bufferSize % blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            drain(count);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || b.length - off < len) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (count == buffer.length) {
+                drain(count);
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes out every whole block buffered so far. A trailing partial block
+     * has to wait for more data or {@link #close()}.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain(count - count % blockSize);
+        out.flush();
+    }
+
+    /**
+     * Adds the PKCS#7 padding, writes the last blocks and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            // Padding may not fit behind a full buffer; make room first
+            if (count > buffer.length - blockSize) {
+                drain(count - count % blockSize);
+            }
+            int paddingNeeded = blockSize - (count % blockSize); // A full block when already aligned
+            for (int i = 0; i < paddingNeeded; i++) {
+                buffer[count++] = (byte) paddingNeeded;
+            }
+            drain(count);
+            out.flush();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Encrypts and writes the first len buffered bytes (whole blocks), keeping the rest.
+     */
+    private void drain(int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        cipher.encryptBlocks(buffer, 0, len, buffer, 0);
+        out.write(buffer, 0, len);
+        count -= len;
+        System.arraycopy(buffer, len, buffer, 0, count);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
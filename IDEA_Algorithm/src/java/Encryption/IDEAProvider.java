@@ -0,0 +1,57 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.security.Provider;
+import java.security.Security;
+
+/**
+ * JCA provider exposing this project's IDEA implementation through
+ * {@code javax.crypto.Cipher}:
+ * "IDEA/ECB/PKCS5Padding", "IDEA/ECB/NoPadding", "IDEA/CBC/PKCS5Padding",
+ * "IDEA/CBC/NoPadding" and "IDEA/CTR/NoPadding", keyed with a 16-byte
+ * {@code SecretKeySpec(key, "IDEA")}.
+ *
+ * Register once with {@link #install()} (or {@code Security.addProvider}) and
+ * ask for it by name: {@code Cipher.getInstance("IDEA/CBC/PKCS5Padding", IDEAProvider.NAME)}.
+ * Note that Oracle JDK builds only accept signed JCE providers; OpenJDK does not
+ * have that restriction.
+ *
+ * @author User
+ */
+public final class IDEAProvider extends Provider {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The provider name.
+     */
+    public static final String NAME = "IDEA_Algorithm";
+
+    /**
+     * Constructor.
+     */
+    public IDEAProvider() {
+        super(NAME, 1.0, "IDEA block cipher (ECB, CBC, CTR)");
+        put("Cipher.IDEA", IDEACipherSpi.class.getName());
+        put("Cipher.IDEA SupportedModes", "ECB|CBC|CTR");
+        put("Cipher.IDEA SupportedPaddings", "NOPADDING|PKCS5PADDING");
+        put("Cipher.IDEA SupportedKeyFormats", "RAW");
+    }
+
+    /**
+     * Adds the provider to the JVM's provider list unless it is already there.
+     *
+     * @return The installed provider instance.
+     */
+    public static synchronized Provider install() {
+        Provider installed = Security.getProvider(NAME);
+        if (installed == null) {
+            installed = new IDEAProvider();
+            Security.addProvider(installed);
+        }
+        return installed;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of {@link IDEAKeySchedule}s keyed by the raw key
+ * bytes. Lookups are lock-free; entries are evicted least-recently-used once
+ * the cache is over its size limit, and dropped once they have been idle for
+ * longer than the configured time. Eviction work only happens on a miss, so
+ * the hit path stays a single map lookup, and it is amortised: idle entries are
+ * swept at most every quarter of the idle time (an expired entry is never
+ * returned meanwhile), and an over-full cache is trimmed a batch below its
+ * limit in one scan, so a full scan happens once per many misses rather than
+ * on each. Only one miss at a time does this work; the cache may briefly hold
+ * a few more entries than the limit while it runs.
+ *
+ * @author User
+ */
+public final class KeyScheduleCache {
+
+    /**
+     * Default limits of the {@link #shared()} cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_IDLE_MINUTES = 30;
+
+    private static final KeyScheduleCache SHARED
+            = new KeyScheduleCache(DEFAULT_MAX_ENTRIES, TimeUnit.MINUTES.toNanos(DEFAULT_MAX_IDLE_MINUTES));
+
+    private final ConcurrentHashMap<KeyBytes, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long maxIdleNanos;
+
+    /**
+     * How far under the limit a trim goes, so that the next misses need no scan.
+     */
+    private final int trimBatch;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile long lastSweep = System.nanoTime();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries The maximum number of schedules kept.
+     * @param maxIdleNanos How long an unused schedule is kept, in nanoseconds; 0 keeps it forever.
+     */
+    public KeyScheduleCache(int maxEntries, long maxIdleNanos) {
+        if (maxEntries <= 0 || maxIdleNanos < 0) {
+            throw new IllegalArgumentException("Cache limits must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxIdleNanos = maxIdleNanos;
+        this.trimBatch = Math.max(1, maxEntries / 16);
+    }
+
+    /**
+     * The process-wide cache used by the servlets; library callers may share it too.
+     *
+     * @return The shared cache.
+     */
+    public static KeyScheduleCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the schedule for a key string, derived the same way as {@code new IDEA(keyStr)}.
+     *
+     * @param keyStr The key as a string.
+     * @return The cached or newly built key schedule.
+     */
+    public IDEAKeySchedule get(String keyStr) {
+        return get(Encryption.makeKey(keyStr, IDEAKeySchedule.KEY_SIZE));
+    }
+
+    /**
+     * Returns the schedule for raw key bytes.
+     *
+     * @param key The 16-byte key; copied, so the caller may reuse the array.
+     * @return The cached or newly built key schedule.
+     */
+    public IDEAKeySchedule get(byte[] key) {
+        KeyBytes lookup = new KeyBytes(key);
+        long now = System.nanoTime();
+        Entry entry = entries.get(lookup);
+        if (entry != null && !isExpired(entry, now)) {
+            entry.lastAccess = now;
+            hits.increment();
+            return entry.schedule;
+        }
+        misses.increment();
+
+        // Build outside any lock; a concurrent miss on the same key just loses the race.
+        Entry fresh = new Entry(new IDEAKeySchedule(key), now);
+        KeyBytes stored = new KeyBytes(Arrays.copyOf(key, key.length));
+        if (entry != null) {
+            entries.remove(lookup, entry);
+            evictions.increment();
+        }
+        Entry existing = entries.putIfAbsent(stored, fresh);
+        if (existing != null) {
+            existing.lastAccess = now;
+            return existing.schedule;
+        }
+        evict(now);
+        return fresh.schedule;
+    }
+
+    /**
+     * Convenience: a cipher built on the cached schedule for a key string.
+     *
+     * @param keyStr The key as a string.
+     * @return A new IDEA instance sharing the cached schedule.
+     */
+    public IDEA cipher(String keyStr) {
+        return new IDEA(get(keyStr));
+    }
+
+    /**
+     * Drops idle entries if a sweep is due, and if the cache is over its
+     * limit, the least recently used ones until it is {@link #trimBatch} under.
+     */
+    private void evict(long now) {
+        boolean sweep = maxIdleNanos > 0 && now - lastSweep > maxIdleNanos / 4;
+        if (!sweep && entries.size() <= maxEntries) {
+            return;
+        }
+        if (!evicting.compareAndSet(false, true)) {
+            return; // Another miss is already at it
+        }
+        try {
+            if (sweep) {
+                lastSweep = now;
+            }
+            // One pass: sweep, and note the ages of the survivors (relative to now, so they sort)
+            long[] ages = new long[entries.size() + 16];
+            int count = 0;
+            for (Iterator<Map.Entry<KeyBytes, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+                Entry entry = it.next().getValue();
+                if (sweep && isExpired(entry, now)) {
+                    it.remove();
+                    evictions.increment();
+                } else {
+                    if (count == ages.length) {
+                        ages = Arrays.copyOf(ages, count * 2);
+                    }
+                    ages[count++] = entry.lastAccess - now;
+                }
+            }
+            int excess = count - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            int victims = Math.min(count, excess + trimBatch);
+            Arrays.sort(ages, 0, count);
+            long cutoff = ages[victims - 1]; // Access time (relative) of the youngest victim
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && victims > 0;) {
+                Entry entry = it.next();
+                if (entry.lastAccess - now <= cutoff) {
+                    it.remove();
+                    evictions.increment();
+                    victims--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return maxIdleNanos > 0 && now - entry.lastAccess > maxIdleNanos;
+    }
+
+    /**
+     * Removes every entry. Counters are kept.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return The number of schedules currently cached.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups served from the cache.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to build a schedule.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries dropped for size or idle time.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * A cached schedule plus its last access time.
+     */
+    private static final class Entry {
+
+        final IDEAKeySchedule schedule;
+        volatile long lastAccess;
+
+        Entry(IDEAKeySchedule schedule, long lastAccess) {
+            this.schedule = schedule;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Map key comparing byte arrays by content.
+     */
+    private static final class KeyBytes {
+
+        private final byte[] bytes;
+        private final int hash;
+
+        KeyBytes(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof KeyBytes && Arrays.equals(bytes, ((KeyBytes) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+/**
+ * An engine that runs the IDEA block function over many blocks per call.
+ * Blocks are packed into longs the same way as for {@link IDEA#idea}.
+ * Implementations must be stateless and produce exactly the output of
+ * {@link IDEA#idea} for every block.
+ *
+ * @author User
+ */
+interface MultiBlockEngine {
+
+    /**
+     * @return How many blocks the engine would like per call.
+     */
+    int batchBlocks();
+
+    /**
+     * Run IDEA in place on blocks[off] to blocks[off + count - 1].
+     *
+     * @param blocks The packed blocks.
+     * @param off    The index of the first block.
+     * @param count  The number of blocks; any value, not just whole batches.
+     * @param keys   The array of round keys (either encrypt or decrypt keys).
+     */
+    void idea(long[] blocks, int off, int count, int[] keys);
+}
@@ -0,0 +1,319 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Key schedules for many tenants, packed into large {@code short[]} slabs and
+ * addressed by a tenant ID instead of one {@link IDEA} object per key.
+ *
+ * Each tenant takes 104 shorts (the 52 encryption and 52 decryption subkeys,
+ * 208 bytes) at a fixed position: slab {@code id / SLAB_TENANTS}, slot
+ * {@code id % SLAB_TENANTS}. Compared with an IDEA instance and its schedule
+ * (two {@code int[52]}, the arrays' and objects' headers, the name string)
+ * that is several times less memory per key, and neighbouring tenants share
+ * cache lines instead of being scattered over the heap. Slabs are allocated on
+ * first use, so IDs should be dense, e.g. database row numbers.
+ *
+ * On each call the tenant's subkeys are expanded into a per-thread
+ * {@code int[52]} and run through the same block engine as {@link IDEA}.
+ * Readers take no lock: they copy under an optimistic {@link StampedLock} read
+ * and only retry, with a read lock, if a {@link #put} or {@link #remove} ran
+ * at the same time.
+ *
+ * @author User
+ */
+public final class TenantKeyStore {
+
+    /**
+     * Tenants per slab; a full slab is 104 * 1024 shorts (208 KB).
+     */
+    public static final int SLAB_TENANTS = 1024;
+
+    private static final int SUBKEYS = 52;
+    private static final int SLOT_SIZE = 2 * SUBKEYS;
+
+    /**
+     * Expanded subkeys for the call in progress on this thread.
+     */
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[SUBKEYS]);
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxTenants;
+
+    /**
+     * slabs[i] holds tenants i * SLAB_TENANTS onwards, or is null if none was
+     * stored yet; present has one bit per tenant. Both are replaced, never
+     * resized in place, when they grow.
+     */
+    private short[][] slabs = new short[0][];
+    private long[] present = new long[0];
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param maxTenants Tenant IDs must be in [0, maxTenants).
+     */
+    public TenantKeyStore(int maxTenants) {
+        if (maxTenants <= 0) {
+            throw new IllegalArgumentException("maxTenants must be positive.");
+        }
+        this.maxTenants = maxTenants;
+    }
+
+    /**
+     * Stores (or replaces) a tenant's key.
+     *
+     * @param tenantId The tenant.
+     * @param key The 16-byte key.
+     */
+    public void put(int tenantId, byte[] key) {
+        checkTenant(tenantId);
+        IDEAKeySchedule schedule = new IDEAKeySchedule(key);
+        int[] encryptKeys = schedule.encryptKeys();
+        int[] decryptKeys = schedule.decryptKeys();
+
+        long stamp = lock.writeLock();
+        try {
+            int slabIndex = tenantId / SLAB_TENANTS;
+            if (slabIndex >= slabs.length) {
+                slabs = Arrays.copyOf(slabs, slabIndex + 1);
+            }
+            if (slabs[slabIndex] == null) {
+                slabs[slabIndex] = new short[SLAB_TENANTS * SLOT_SIZE];
+            }
+            short[] slab = slabs[slabIndex];
+            int base = (tenantId % SLAB_TENANTS) * SLOT_SIZE;
+            for (int i = 0; i < SUBKEYS; ++i) {
+                slab[base + i] = (short) encryptKeys[i];
+                slab[base + SUBKEYS + i] = (short) decryptKeys[i];
+            }
+            int word = tenantId >>> 6;
+            if (word >= present.length) {
+                present = Arrays.copyOf(present, Math.max(word + 1, 2 * present.length));
+            }
+            if ((present[word] & (1L << tenantId)) == 0) {
+                present[word] |= 1L << tenantId;
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Stores (or replaces) a tenant's key, derived from a string the same way
+     * as {@code new IDEA(keyStr)}.
+     *
+     * @param tenantId The tenant.
+     * @param keyStr The key as a string.
+     */
+    public void put(int tenantId, String keyStr) {
+        put(tenantId, Encryption.makeKey(keyStr, IDEAKeySchedule.KEY_SIZE));
+    }
+
+    /**
+     * Forgets a tenant's key; its subkeys are overwritten.
+     *
+     * @param tenantId The tenant.
+     * @return true if the tenant had a key.
+     */
+    public boolean remove(int tenantId) {
+        checkTenant(tenantId);
+        long stamp = lock.writeLock();
+        try {
+            int word = tenantId >>> 6;
+            if (word >= present.length || (present[word] & (1L << tenantId)) == 0) {
+                return false;
+            }
+            present[word] &= ~(1L << tenantId);
+            size--;
+            int base = (tenantId % SLAB_TENANTS) * SLOT_SIZE;
+            Arrays.fill(slabs[tenantId / SLAB_TENANTS], base, base + SLOT_SIZE, (short) 0);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param tenantId The tenant.
+     * @return true if the tenant has a key.
+     */
+    public boolean contains(int tenantId) {
+        if (tenantId < 0 || tenantId >= maxTenants) {
+            return false;
+        }
+        long stamp = lock.readLock();
+        try {
+            int word = tenantId >>> 6;
+            return word < present.length && (present[word] & (1L << tenantId)) != 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return The number of tenants with a key.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Encrypts a run of whole 8-byte blocks (ECB, no padding) with a tenant's key,
+     * like {@link IDEA#encryptBlocks}.
+     *
+     * @param tenantId The tenant.
+     * @param in     The input (clear text) buffer.
+     * @param inOff  The offset in the input buffer to start reading from.
+     * @param len    The number of bytes to process; must be a multiple of the block size.
+     * @param out    The output (cipher text) buffer.
+     * @param outOff The offset in the output buffer to start writing to.
+     * @throws IllegalArgumentException if the tenant has no key or the range is invalid
+     */
+    public void encryptBlocks(int tenantId, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkBlockRange(in, inOff, len, out, outOff);
+        int[] keys = expand(tenantId, false);
+        long start = System.nanoTime();
+        IDEAInterleaved.process(keys, in, inOff, len, out, outOff);
+        CipherMetrics.recordEncrypt(len, System.nanoTime() - start);
+    }
+
+    /**
+     * Decrypts a run of whole 8-byte blocks (ECB, no padding) with a tenant's key,
+     * like {@link IDEA#decryptBlocks}.
+     *
+     * @param tenantId The tenant.
+     * @param in     The input (cipher text) buffer.
+     * @param inOff  The offset in the input buffer to start reading from.
+     * @param len    The number of bytes to process; must be a multiple of the block size.
+     * @param out    The output (clear text) buffer.
+     * @param outOff The offset in the output buffer to start writing to.
+     * @throws IllegalArgumentException if the tenant has no key or the range is invalid
+     */
+    public void decryptBlocks(int tenantId, byte[] in, int inOff, int len, byte[] out, int outOff) {
+        checkBlockRange(in, inOff, len, out, outOff);
+        int[] keys = expand(tenantId, true);
+        long start = System.nanoTime();
+        IDEAInterleaved.process(keys, in, inOff, len, out, outOff);
+        CipherMetrics.recordDecrypt(len, System.nanoTime() - start);
+    }
+
+    /**
+     * Encrypts raw bytes with PKCS#7 padding, like {@link IDEA#encryptBytes}.
+     *
+     * @param tenantId The tenant.
+     * @param data The clear text buffer.
+     * @param off  The offset of the clear text.
+     * @param len  The length of the clear text.
+     * @return A new array holding the padded cipher text.
+     * @throws IllegalArgumentException if the tenant has no key or the range is invalid
+     */
+    public byte[] encryptBytes(int tenantId, byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        int paddingNeeded = IDEA.BLOCK_SIZE - (len % IDEA.BLOCK_SIZE); // A full block when already aligned
+        byte[] out = Arrays.copyOfRange(data, off, off + len + paddingNeeded);
+        Arrays.fill(out, len, out.length, (byte) paddingNeeded);
+        encryptBlocks(tenantId, out, 0, out.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Decrypts raw bytes produced by {@link #encryptBytes} and strips the
+     * padding, like {@link IDEA#decryptBytes}.
+     *
+     * @param tenantId The tenant.
+     * @param data The cipher text buffer.
+     * @param off  The offset of the cipher text.
+     * @param len  The length of the cipher text; a non-zero multiple of the block size.
+     * @return A new array holding the clear text.
+     * @throws IllegalArgumentException if the tenant has no key, or the length or the padding is invalid
+     */
+    public byte[] decryptBytes(int tenantId, byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        if (len == 0 || len % IDEA.BLOCK_SIZE != 0) {
+            CipherMetrics.INVALID_PADDING.increment();
+            throw new IllegalArgumentException("Encrypted length is not a multiple of block size.");
+        }
+        byte[] out = new byte[len];
+        decryptBlocks(tenantId, data, off, len, out, 0);
+        return Arrays.copyOf(out, len - IDEA.checkPadding(out, len));
+    }
+
+    /**
+     * Copies a tenant's subkeys into this thread's scratch array, without
+     * locking unless a writer got in the way.
+     */
+    private int[] expand(int tenantId, boolean decrypt) {
+        checkTenant(tenantId);
+        int[] keys = SCRATCH.get();
+        long stamp = lock.tryOptimisticRead();
+        boolean found = copy(tenantId, decrypt, keys);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = copy(tenantId, decrypt, keys);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("No key stored for tenant " + tenantId + ".");
+        }
+        return keys;
+    }
+
+    /**
+     * Reads the slot. Under an optimistic read the fields may be mid-update, so
+     * every index is checked rather than trusted; the result is only used once
+     * the stamp validates.
+     */
+    private boolean copy(int tenantId, boolean decrypt, int[] keys) {
+        long[] bits = present;
+        int word = tenantId >>> 6;
+        if (word >= bits.length || (bits[word] & (1L << tenantId)) == 0) {
+            return false;
+        }
+        short[][] allSlabs = slabs;
+        int slabIndex = tenantId / SLAB_TENANTS;
+        short[] slab = slabIndex < allSlabs.length ? allSlabs[slabIndex] : null;
+        if (slab == null) {
+            return false;
+        }
+        int base = (tenantId % SLAB_TENANTS) * SLOT_SIZE + (decrypt ? SUBKEYS : 0);
+        for (int i = 0; i < SUBKEYS; ++i) {
+            keys[i] = slab[base + i] & 0xffff;
+        }
+        return true;
+    }
+
+    private void checkTenant(int tenantId) {
+        if (tenantId < 0 || tenantId >= maxTenants) {
+            throw new IllegalArgumentException("Tenant ID " + tenantId + " outside [0, " + maxTenants + ").");
+        }
+    }
+
+    private static void checkBlockRange(byte[] in, int inOff, int len, byte[] out, int outOff) {
+        if (len < 0 || len % IDEA.BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Length must be a non-negative multiple of the block size.");
+        }
+        if (inOff < 0 || outOff < 0 || in.length - inOff < len || out.length - outOff < len) {
+            throw new IllegalArgumentException("Block range outside the array.");
+        }
+    }
+}
@@ -4,6 +4,10 @@
  */
 package Encryption;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 /**
  *
  * @author User
@@ -22,7 +26,15 @@ public class Utils {
      * @param shortLen The number of 16-bit integers (shorts) to process.
      */
     protected static void squashBytesToShorts(byte[] inBytes, int inOff, int[] outShorts, int outOff, int shortLen) {
-        for (int i = 0; i < shortLen; ++i) {
+        int i = 0;
+        for (; i + 4 <= shortLen; i += 4) { // Four shorts per 64-bit load
+            long word = BlockCodec.CODEC.getLong(inBytes, inOff + i * 2);
+            outShorts[outOff + i] = (int) (word >>> 48) & 0xffff;
+            outShorts[outOff + i + 1] = (int) (word >>> 32) & 0xffff;
+            outShorts[outOff + i + 2] = (int) (word >>> 16) & 0xffff;
+            outShorts[outOff + i + 3] = (int) word & 0xffff;
+        }
+        for (; i < shortLen; ++i) {
             // (byte[i*2] << 8) is the MSB, (byte[i*2+1]) is the LSB
             outShorts[outOff + i] = ((inBytes[inOff + i * 2] & 0xff) << 8) | (inBytes[inOff + i * 2 + 1] & 0xff);
         }
@@ -40,12 +52,95 @@ public class Utils {
      * @param shortLen The number of 16-bit integers (shorts) to process.
      */
     protected static void spreadShortsToBytes(int[] inShorts, int inOff, byte[] outBytes, int outOff, int shortLen) {
-        for (int i = 0; i < shortLen; ++i) {
+        int i = 0;
+        for (; i + 4 <= shortLen; i += 4) { // Four shorts per 64-bit store
+            long word = ((inShorts[inOff + i] & 0xffffL) << 48) | ((inShorts[inOff + i + 1] & 0xffffL) << 32)
+                    | ((inShorts[inOff + i + 2] & 0xffffL) << 16) | (inShorts[inOff + i + 3] & 0xffffL);
+            BlockCodec.CODEC.putLong(word, outBytes, outOff + i * 2);
+        }
+        for (; i < shortLen; ++i) {
             outBytes[outOff + i * 2] = (byte) ((inShorts[inOff + i] >>> 8) & 0xff); // MSB
             outBytes[outOff + i * 2 + 1] = (byte) ((inShorts[inOff + i]) & 0xff);   // LSB
         }
     }
 
+    /**
+     * Packs one 8-byte block into a long, i.e. four 16-bit integers (shorts)
+     * with the first short in the most significant bits. Assumes Big-Endian
+     * byte order, same as {@link #squashBytesToShorts}.
+     *
+     * @param inBytes The input byte array.
+     * @param inOff The offset in the input byte array to start reading from.
+     * @return The eight bytes as a long.
+     */
+    protected static long squashBytesToLong(byte[] inBytes, int inOff) {
+        return BlockCodec.CODEC.getLong(inBytes, inOff);
+    }
+
+    /**
+     * Splits a long back into an 8-byte block. Assumes Big-Endian byte order.
+     *
+     * @param in The packed block.
+     * @param outBytes The output byte array.
+     * @param outOff The offset in the output byte array to start writing to.
+     */
+    protected static void spreadLongToBytes(long in, byte[] outBytes, int outOff) {
+        BlockCodec.CODEC.putLong(in, outBytes, outOff);
+    }
+
+    /**
+     * Reads a 32-bit integer, such as a length prefix. Assumes Big-Endian byte order.
+     *
+     * @param inBytes The input byte array.
+     * @param inOff The offset in the input byte array to start reading from.
+     * @return The four bytes as an int.
+     */
+    protected static int readInt(byte[] inBytes, int inOff) {
+        return ((inBytes[inOff] & 0xff) << 24) | ((inBytes[inOff + 1] & 0xff) << 16)
+                | ((inBytes[inOff + 2] & 0xff) << 8) | (inBytes[inOff + 3] & 0xff);
+    }
+
+    /**
+     * Writes a 32-bit integer. Assumes Big-Endian byte order.
+     *
+     * @param in The value.
+     * @param outBytes The output byte array.
+     * @param outOff The offset in the output byte array to start writing to.
+     */
+    protected static void writeInt(int in, byte[] outBytes, int outOff) {
+        outBytes[outOff] = (byte) (in >>> 24);
+        outBytes[outOff + 1] = (byte) (in >>> 16);
+        outBytes[outOff + 2] = (byte) (in >>> 8);
+        outBytes[outOff + 3] = (byte) in;
+    }
+
+    /**
+     * Packs one 8-byte block read straight out of a byte buffer, heap or direct.
+     * Assumes Big-Endian byte order regardless of the buffer's own order setting,
+     * and uses absolute reads so the buffer position is left untouched.
+     *
+     * @param inBuf The input buffer.
+     * @param inIndex The absolute index in the buffer to start reading from.
+     * @return The eight bytes as a long.
+     */
+    protected static long squashBytesToLong(ByteBuffer inBuf, int inIndex) {
+        long block = inBuf.getLong(inIndex); // One wide read; fix up the order afterwards
+        return inBuf.order() == ByteOrder.BIG_ENDIAN ? block : Long.reverseBytes(block);
+    }
+
+    /**
+     * Splits a long into an 8-byte block written straight into a byte buffer.
+     * Assumes Big-Endian byte order regardless of the buffer's own order setting,
+     * and uses absolute writes so the buffer position is left untouched.
+     *
+     * @param in The packed block.
+     * @param outBuf The output buffer.
+     * @param outIndex The absolute index in the buffer to start writing to.
+     */
+    protected static void spreadLongToBytes(long in, ByteBuffer outBuf, int outIndex) {
+        outBuf.putLong(outIndex, outBuf.order() == ByteOrder.BIG_ENDIAN ? in : Long.reverseBytes(in));
+    }
+
     /**
      * Converts an array of bytes into an array of 16-bit integers (shorts).
      * Assumes Little-Endian byte order (least significant byte first).
@@ -58,7 +153,15 @@ public class Utils {
      * @param shortLen The number of 16-bit integers (shorts) to process.
      */
     protected static void squashBytesToShortsLittle(byte[] inBytes, int inOff, int[] outShorts, int outOff, int shortLen) {
-        for (int i = 0; i < shortLen; ++i) {
+        int i = 0;
+        for (; i + 4 <= shortLen; i += 4) { // Four shorts per 64-bit load
+            long word = BlockCodec.CODEC.getLongLittle(inBytes, inOff + i * 2);
+            outShorts[outOff + i] = (int) word & 0xffff;
+            outShorts[outOff + i + 1] = (int) (word >>> 16) & 0xffff;
+            outShorts[outOff + i + 2] = (int) (word >>> 32) & 0xffff;
+            outShorts[outOff + i + 3] = (int) (word >>> 48) & 0xffff;
+        }
+        for (; i < shortLen; ++i) {
             // (byte[i*2]) is the LSB, (byte[i*2+1] << 8) is the MSB
             outShorts[outOff + i] = ((inBytes[inOff + i * 2] & 0xff)) | ((inBytes[inOff + i * 2 + 1] & 0xff) << 8);
         }
@@ -76,7 +179,13 @@ public class Utils {
      * @param shortLen The number of 16-bit integers (shorts) to process.
      */
     protected static void spreadShortsToBytesLittle(int[] inShorts, int inOff, byte[] outBytes, int outOff, int shortLen) {
-        for (int i = 0; i < shortLen; ++i) {
+        int i = 0;
+        for (; i + 4 <= shortLen; i += 4) { // Four shorts per 64-bit store
+            long word = (inShorts[inOff + i] & 0xffffL) | ((inShorts[inOff + i + 1] & 0xffffL) << 16)
+                    | ((inShorts[inOff + i + 2] & 0xffffL) << 32) | ((inShorts[inOff + i + 3] & 0xffffL) << 48);
+            BlockCodec.CODEC.putLongLittle(word, outBytes, outOff + i * 2);
+        }
+        for (; i < shortLen; ++i) {
             outBytes[outOff + i * 2] = (byte) ((inShorts[inOff + i]) & 0xff);       // LSB
             outBytes[outOff + i * 2 + 1] = (byte) ((inShorts[inOff + i] >>> 8) & 0xff); // MSB
         }
@@ -93,7 +202,13 @@ public class Utils {
      * @param intLen The number of 32-bit integers to process.
      */
     public static void squashBytesToInts(byte[] inBytes, int inOff, int[] outInts, int outOff, int intLen) {
-        for (int i = 0; i < intLen; ++i) {
+        int i = 0;
+        for (; i + 2 <= intLen; i += 2) { // Two ints per 64-bit load
+            long word = BlockCodec.CODEC.getLong(inBytes, inOff + i * 4);
+            outInts[outOff + i] = (int) (word >>> 32);
+            outInts[outOff + i + 1] = (int) word;
+        }
+        for (; i < intLen; ++i) {
             outInts[outOff + i] = ((inBytes[inOff + i * 4] & 0xff) << 24) | ((inBytes[inOff + i * 4 + 1] & 0xff) << 16)
                     | ((inBytes[inOff + i * 4 + 2] & 0xff) << 8) | ((inBytes[inOff + i * 4 + 3] & 0xff));
         }
@@ -110,7 +225,12 @@ public class Utils {
      * @param intLen The number of 32-bit integers to process.
      */
     public static void spreadIntsToBytes(int[] inInts, int inOff, byte[] outBytes, int outOff, int intLen) {
-        for (int i = 0; i < intLen; ++i) {
+        int i = 0;
+        for (; i + 2 <= intLen; i += 2) { // Two ints per 64-bit store
+            long word = ((long) inInts[inOff + i] << 32) | (inInts[inOff + i + 1] & 0xffffffffL);
+            BlockCodec.CODEC.putLong(word, outBytes, outOff + i * 4);
+        }
+        for (; i < intLen; ++i) {
             outBytes[outOff + i * 4] = (byte) ((inInts[inOff + i] >>> 24) & 0xff);
             outBytes[outOff + i * 4 + 1] = (byte) ((inInts[inOff + i] >>> 16) & 0xff);
             outBytes[outOff + i * 4 + 2] = (byte) ((inInts[inOff + i] >>> 8) & 0xff);
@@ -118,6 +238,157 @@ public class Utils {
         }
     }
 
+    private static final char[] BASE64_URL_DIGITS
+            = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Maps an ASCII character to its Base64 URL digit value, or -1.
+     */
+    private static final byte[] BASE64_URL_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64_URL_DIGITS.length; i++) {
+            BASE64_URL_VALUES[BASE64_URL_DIGITS[i]] = (byte) i;
+        }
+    }
+
+    /**
+     * Encodes bytes as URL-safe Base64 (RFC 4648, "-" and "_", no "=" padding).
+     * The characters are produced in a single pass straight into the result's
+     * char array, so the only copy is the one made by the String constructor.
+     *
+     * @param inBytes The input byte array.
+     * @param inOff The offset in the input byte array to start reading from.
+     * @param len The number of bytes to encode.
+     * @return The encoded text, safe in URLs, HTML forms and JSON.
+     */
+    public static String toBase64Url(byte[] inBytes, int inOff, int len) {
+        char[] out = new char[(int) ((len * 4L + 2) / 3)];
+        int o = 0;
+        int end = inOff + len - len % 3;
+        for (int i = inOff; i < end; i += 3) {
+            int bits = ((inBytes[i] & 0xff) << 16) | ((inBytes[i + 1] & 0xff) << 8) | (inBytes[i + 2] & 0xff);
+            out[o++] = BASE64_URL_DIGITS[bits >>> 18];
+            out[o++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+            out[o++] = BASE64_URL_DIGITS[(bits >>> 6) & 0x3f];
+            out[o++] = BASE64_URL_DIGITS[bits & 0x3f];
+        }
+        if (len % 3 != 0) {
+            // One or two bytes left over: two or three digits, no padding
+            int bits = (inBytes[end] & 0xff) << 16;
+            if (len % 3 == 2) {
+                bits |= (inBytes[end + 1] & 0xff) << 8;
+            }
+            out[o++] = BASE64_URL_DIGITS[bits >>> 18];
+            out[o++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+            if (len % 3 == 2) {
+                out[o] = BASE64_URL_DIGITS[(bits >>> 6) & 0x3f];
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decodes URL-safe Base64 as written by {@link #toBase64Url}, into a new
+     * array of exactly the decoded length. Trailing "=" padding is accepted.
+     *
+     * @param text The encoded text.
+     * @return The decoded bytes.
+     * @throws IllegalArgumentException if the text is not valid URL-safe Base64
+     */
+    public static byte[] fromBase64Url(CharSequence text) {
+        int len = text.length();
+        while (len > 0 && text.charAt(len - 1) == '=') {
+            len--;
+        }
+        if (len % 4 == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length.");
+        }
+        byte[] out = new byte[(int) (len * 3L / 4)];
+        int o = 0;
+        int end = len - len % 4;
+        for (int i = 0; i < end; i += 4) {
+            int bits = (base64UrlValue(text, i) << 18) | (base64UrlValue(text, i + 1) << 12)
+                    | (base64UrlValue(text, i + 2) << 6) | base64UrlValue(text, i + 3);
+            out[o++] = (byte) (bits >>> 16);
+            out[o++] = (byte) (bits >>> 8);
+            out[o++] = (byte) bits;
+        }
+        if (len % 4 != 0) {
+            int bits = (base64UrlValue(text, end) << 18) | (base64UrlValue(text, end + 1) << 12);
+            if (len % 4 == 3) {
+                bits |= base64UrlValue(text, end + 2) << 6;
+            }
+            out[o++] = (byte) (bits >>> 16);
+            if (len % 4 == 3) {
+                out[o] = (byte) (bits >>> 8);
+            }
+        }
+        return out;
+    }
+
+    private static int base64UrlValue(CharSequence text, int index) {
+        char c = text.charAt(index);
+        int value = c < 128 ? BASE64_URL_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid Base64 character at index " + index + ".");
+        }
+        return value;
+    }
+
+    /**
+     * Encodes bytes as lowercase hexadecimal, in a single pass straight into
+     * the result's char array.
+     *
+     * @param inBytes The input byte array.
+     * @param inOff The offset in the input byte array to start reading from.
+     * @param len The number of bytes to encode.
+     * @return The encoded text, two digits per byte.
+     */
+    public static String toHex(byte[] inBytes, int inOff, int len) {
+        char[] out = new char[2 * len];
+        for (int i = 0; i < len; ++i) {
+            int b = inBytes[inOff + i] & 0xff;
+            out[2 * i] = HEX_DIGITS[b >>> 4];
+            out[2 * i + 1] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decodes hexadecimal (either case) into a new array.
+     *
+     * @param text The encoded text.
+     * @return The decoded bytes.
+     * @throws IllegalArgumentException if the text is not valid hexadecimal
+     */
+    public static byte[] fromHex(CharSequence text) {
+        if (text.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid hex length.");
+        }
+        byte[] out = new byte[text.length() / 2];
+        for (int i = 0; i < out.length; ++i) {
+            out[i] = (byte) ((hexValue(text, 2 * i) << 4) | hexValue(text, 2 * i + 1));
+        }
+        return out;
+    }
+
+    private static int hexValue(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("Invalid hex character at index " + index + ".");
+    }
+
     /**
      * Tests if a number is even using bitwise AND.
      *
@@ -145,7 +416,7 @@ public class Utils {
      * @return The count of set bits.
      */
     public static int countOnes(byte x) {
-        return countOnes(x & 0xffL); // Promote to long to avoid sign extension issues
+        return Integer.bitCount(x & 0xff); // Mask to avoid sign extension issues
     }
 
     /**
@@ -155,8 +426,7 @@ public class Utils {
      * @return The count of set bits.
      */
     public static int countOnes(int x) {
-        return countOnes(x & 0xffffffffL); // Promote to long to handle unsigned int behavior
-        // Alternative for modern Java (Java 8+): return Integer.bitCount(x);
+        return Integer.bitCount(x); // An intrinsic (POPCNT) on current JVMs
     }
 
     /**
@@ -166,14 +436,6 @@ public class Utils {
      * @return The count of set bits.
      */
     public static int countOnes(long x) {
-        int count = 0;
-        while (x != 0) {
-            if (odd(x)) {
-                ++count;
-            }
-            x >>>= 1; // Unsigned right shift
-        }
-        return count;
-        // Alternative for modern Java (Java 8+): return Long.bitCount(x);
+        return Long.bitCount(x); // An intrinsic (POPCNT) on current JVMs
     }
 }
\ No newline at end of file
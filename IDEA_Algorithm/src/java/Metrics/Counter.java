@@ -0,0 +1,50 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter. Backed by a {@link LongAdder}, so concurrent increments
+ * from many threads go to separate cells and never contend on a lock or a
+ * single cache line.
+ *
+ * @author User
+ */
+public final class Counter implements Metric {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    /**
+     * Adds one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Adds an amount.
+     *
+     * @param amount The amount; should not be negative.
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * @return The current total.
+     */
+    public long sum() {
+        return value.sum();
+    }
+
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+        MetricsRegistry.sample(out, name, labels, Long.toString(value.sum()));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Metrics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets from 1 microsecond to 10 seconds
+ * (1, 2.5, 5 per decade), exported as a Prometheus histogram in seconds so
+ * quantiles such as p99 can be computed with {@code histogram_quantile}.
+ *
+ * Recording is a binary search over the bucket bounds and two
+ * {@link LongAdder} updates: no locks and no allocation on the hot path.
+ *
+ * @author User
+ */
+public final class Histogram implements Metric {
+
+    /**
+     * Upper bucket bounds in nanoseconds; the last bucket (+Inf) is implicit.
+     */
+    static final long[] BOUNDS = {
+        1_000L, 2_500L, 5_000L,
+        10_000L, 25_000L, 50_000L,
+        100_000L, 250_000L, 500_000L,
+        1_000_000L, 2_500_000L, 5_000_000L,
+        10_000_000L, 25_000_000L, 50_000_000L,
+        100_000_000L, 250_000_000L, 500_000_000L,
+        1_000_000_000L, 2_500_000_000L, 5_000_000_000L,
+        10_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one observation.
+     *
+     * @param nanos The duration in nanoseconds, e.g. the difference of two {@link System#nanoTime()} readings.
+     */
+    public void observe(long nanos) {
+        int i = Arrays.binarySearch(BOUNDS, nanos);
+        buckets[i < 0 ? -i - 1 : i].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return The number of observations so far.
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i < BOUNDS.length ? BigDecimal.valueOf(BOUNDS[i], 9).stripTrailingZeros().toPlainString() : "+Inf";
+            MetricsRegistry.sample(out, name + "_bucket", prefix + "le=\"" + le + "\"", Long.toString(cumulative));
+        }
+        MetricsRegistry.sample(out, name + "_sum", labels, Double.toString(sumNanos.sum() / 1e9));
+        MetricsRegistry.sample(out, name + "_count", labels, Long.toString(cumulative));
+    }
+}
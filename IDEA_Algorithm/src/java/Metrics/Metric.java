@@ -0,0 +1,23 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Metrics;
+
+/**
+ * One time series (or, for a histogram, one set of them) that can write
+ * itself out in the Prometheus text exposition format.
+ *
+ * @author User
+ */
+interface Metric {
+
+    /**
+     * Appends the sample lines for this metric.
+     *
+     * @param out The output.
+     * @param name The metric family name.
+     * @param labels The rendered label pairs without braces, e.g. {@code op="encrypt"}; may be empty.
+     */
+    void write(StringBuilder out, String name, String labels);
+}
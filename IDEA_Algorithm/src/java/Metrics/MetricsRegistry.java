@@ -0,0 +1,192 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Named metrics, grouped into families that share a name, help text and type
+ * and differ by labels, and rendered in the Prometheus text exposition format.
+ *
+ * Metrics are meant to be looked up once, typically into a static final field,
+ * and then updated directly; only registration and rendering take the
+ * registry's lock. Registering the same name and labels again returns the
+ * existing metric, so servlets that are re-initialised keep their totals.
+ *
+ * @author User
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Content type of {@link #toPrometheusText()}.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * @return The process-wide registry, the one exposed by the metrics servlet.
+     */
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the counter with this name and labels, creating it if needed.
+     *
+     * @param name The metric name, e.g. "idea_bytes_total".
+     * @param help One line describing the metric.
+     * @param labels Label names and values, alternating.
+     * @return The counter.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, "counter", labels, new Counter());
+    }
+
+    /**
+     * Returns the histogram with this name and labels, creating it if needed.
+     *
+     * @param name The metric name, e.g. "idea_operation_duration_seconds".
+     * @param help One line describing the metric.
+     * @param labels Label names and values, alternating.
+     * @return The histogram.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) register(name, help, "histogram", labels, new Histogram());
+    }
+
+    /**
+     * Exposes a count kept elsewhere (such as {@code KeyScheduleCache.hitCount()}) as a counter.
+     *
+     * @param name The metric name.
+     * @param help One line describing the metric.
+     * @param value Reads the current value; called on every scrape.
+     * @param labels Label names and values, alternating.
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, "counter", labels, new Sampled(value));
+    }
+
+    /**
+     * Exposes a value that can go up and down (such as a cache size) as a gauge.
+     *
+     * @param name The metric name.
+     * @param help One line describing the metric.
+     * @param value Reads the current value; called on every scrape.
+     * @param labels Label names and values, alternating.
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, "gauge", labels, new Sampled(value));
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     *
+     * @return The exposition text.
+     */
+    public synchronized String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Metric> series : family.series.entrySet()) {
+                series.getValue().write(out, family.name, series.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    private synchronized Metric register(String name, String help, String type, String[] labels, Metric fresh) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = new Family(name, help, type);
+            families.put(name, family);
+        } else if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type + ".");
+        }
+        String key = renderLabels(labels);
+        Metric existing = family.series.get(key);
+        if (existing != null) {
+            if (existing.getClass() != fresh.getClass()) {
+                throw new IllegalArgumentException("Metric " + name + "{" + key + "} is already registered.");
+            }
+            return existing;
+        }
+        family.series.put(key, fresh);
+        return fresh;
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs.");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    out.append('\\').append(c);
+                } else if (c == '\n') {
+                    out.append("\\n");
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends one sample line.
+     */
+    static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static final class Family {
+
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Metric> series = new LinkedHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * A value read from somewhere else at scrape time.
+     */
+    private static final class Sampled implements Metric {
+
+        private final LongSupplier value;
+
+        Sampled(LongSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, Long.toString(value.getAsLong()));
+        }
+    }
+}
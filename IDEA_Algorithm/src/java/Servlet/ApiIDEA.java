@@ -0,0 +1,206 @@
+package Servlet;
+
+import Encryption.*;
+import Metrics.Counter;
+import Metrics.Histogram;
+import Metrics.MetricsRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Stateless API for IDEA encryption/decryption: POST the data as the request
+ * body to <code>/api/encrypt</code> or <code>/api/decrypt</code> and the result
+ * comes back in the response, in a single round trip.
+ *
+ * Unlike {@link RunIDEA}, nothing is stored in an <code>HttpSession</code> (none
+ * is ever created) and there is no redirect, so memory use does not grow with
+ * the number of clients. The key is taken from the <code>X-Idea-Key</code>
+ * header, or {@link RunIDEA#DEFAULT_KEY} if there is none; schedules come from
+ * the shared {@link KeyScheduleCache}.
+ *
+ * The response is the raw bytes (application/octet-stream), or, when the
+ * request's <code>Accept</code> header asks for application/json, a JSON object
+ * with the bytes in URL-safe Base64 (no padding): <code>{"operation":"encrypt","data":"..."}</code>.
+ *
+ * <code>/api/batch/encrypt</code> and <code>/api/batch/decrypt</code> take many
+ * messages at once under the same key, each framed as a 4-byte big-endian
+ * length and its bytes, and return the results framed the same way (see
+ * {@link IDEABatch}).
+ *
+ * @author User
+ */
+public class ApiIDEA extends HttpServlet {
+
+    /**
+     * Header carrying an optional key string.
+     */
+    static final String KEY_HEADER = "X-Idea-Key";
+
+    /**
+     * Largest request body accepted, in bytes. Bigger payloads belong on {@link StreamIDEA}.
+     */
+    static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+
+    private static final Histogram REQUEST_LATENCY = MetricsRegistry.shared().histogram(
+            "idea_request_duration_seconds", "Time to handle a request, by servlet.", "servlet", "ApiIDEA");
+    private static final Counter ERRORS = MetricsRegistry.shared().counter(
+            "idea_errors_total", "Requests that failed, by servlet.", "servlet", "ApiIDEA");
+
+    /**
+     * Handles the HTTP <code>POST</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            handle(request, response);
+        } finally {
+            REQUEST_LATENCY.observe(System.nanoTime() - start);
+        }
+    }
+
+    private static void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String operation = operation(request);
+        if (operation == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Use /api/encrypt, /api/decrypt, /api/batch/encrypt or /api/batch/decrypt.");
+            return;
+        }
+        long declared = request.getContentLengthLong();
+        if (declared > MAX_BODY_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+
+        byte[] body = readBody(request.getInputStream(), (int) declared);
+        if (body == null) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+
+        IDEA cipher = cipher(request);
+        byte[] result;
+        try {
+            switch (operation) {
+                case "encrypt":
+                    result = cipher.encryptBytes(body, 0, body.length);
+                    break;
+                case "decrypt":
+                    result = cipher.decryptBytes(body, 0, body.length);
+                    break;
+                case "batch/encrypt":
+                    result = IDEABatch.encrypt(cipher, body, 0, body.length);
+                    break;
+                default:
+                    result = IDEABatch.decrypt(cipher, body, 0, body.length);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            ERRORS.increment();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        if (wantsJson(request)) {
+            byte[] json = ("{\"operation\":\"" + operation + "\",\"data\":\""
+                    + Utils.toBase64Url(result, 0, result.length) + "\"}").getBytes(StandardCharsets.US_ASCII);
+            response.setContentType("application/json;charset=UTF-8");
+            write(response, json);
+        } else {
+            response.setContentType("application/octet-stream");
+            write(response, result);
+        }
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Stateless API for IDEA encryption/decryption.";
+    }
+
+    /**
+     * @return "encrypt", "decrypt", "batch/encrypt", "batch/decrypt", or null for any other path.
+     */
+    private static String operation(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null) {
+            return null;
+        }
+        switch (pathInfo) {
+            case "/encrypt":
+            case "/decrypt":
+            case "/batch/encrypt":
+            case "/batch/decrypt":
+                return pathInfo.substring(1);
+            default:
+                return null;
+        }
+    }
+
+    private static IDEA cipher(HttpServletRequest request) {
+        String key = request.getHeader(KEY_HEADER);
+        return KeyScheduleCache.shared().cipher(key == null || key.isEmpty() ? RunIDEA.DEFAULT_KEY : key);
+    }
+
+    private static boolean wantsJson(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("application/json");
+    }
+
+    /**
+     * Reads the whole request body, sized from the Content-Length when the
+     * client sent one.
+     *
+     * @return The body, or null if it is larger than {@link #MAX_BODY_SIZE}.
+     */
+    private static byte[] readBody(InputStream in, int declared) throws IOException {
+        if (declared >= 0) {
+            byte[] body = new byte[declared];
+            int filled = 0;
+            while (filled < declared) {
+                int n = in.read(body, filled, declared - filled);
+                if (n < 0) {
+                    return Arrays.copyOf(body, filled); // Client sent less than announced
+                }
+                filled += n;
+            }
+            return body;
+        }
+        // Chunked body: grow the buffer, up to the limit
+        byte[] body = new byte[8192];
+        int filled = 0;
+        for (int n; (n = in.read(body, filled, body.length - filled)) >= 0;) {
+            filled += n;
+            if (filled == body.length) {
+                if (body.length == MAX_BODY_SIZE) {
+                    return in.read() < 0 ? body : null;
+                }
+                body = Arrays.copyOf(body, Math.min(2 * body.length, MAX_BODY_SIZE));
+            }
+        }
+        return Arrays.copyOf(body, filled);
+    }
+
+    private static void write(HttpServletResponse response, byte[] data) throws IOException {
+        response.setContentLength(data.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(data);
+        out.flush();
+    }
+}
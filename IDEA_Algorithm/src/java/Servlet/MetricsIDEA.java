@@ -0,0 +1,62 @@
+package Servlet;
+
+import Encryption.CipherMetrics;
+import Metrics.MetricsRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Exposes {@link MetricsRegistry#shared()} at <code>/metrics</code> in the
+ * Prometheus text format: byte and operation counters, latency histograms
+ * (for p99 use <code>histogram_quantile(0.99, rate(..._bucket[5m]))</code>),
+ * error and invalid-padding counts, and the key schedule cache statistics.
+ *
+ * @author User
+ */
+public class MetricsIDEA extends HttpServlet {
+
+    /**
+     * Registers the cipher metrics up front, so they are scraped as zeros
+     * rather than missing until the first request.
+     *
+     * @throws ServletException if a servlet-specific error occurs
+     */
+    @Override
+    public void init() throws ServletException {
+        CipherMetrics.register();
+    }
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        byte[] text = MetricsRegistry.shared().toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        response.setContentType(MetricsRegistry.CONTENT_TYPE);
+        response.setContentLength(text.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(text);
+        out.flush();
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Prometheus metrics for IDEA encryption/decryption.";
+    }
+}
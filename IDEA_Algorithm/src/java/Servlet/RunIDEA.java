@@ -1,8 +1,14 @@
 package Servlet;
 
 import Encryption.*;
+import Metrics.Counter;
+import Metrics.Histogram;
+import Metrics.MetricsRegistry;
 import java.io.IOException;
 import java.io.PrintWriter; // Not strictly needed for redirection, but often useful in servlets
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -18,6 +24,52 @@ import javax.servlet.http.HttpSession; // Added to potentially store results for
  */
 public class RunIDEA extends HttpServlet {
 
+    /**
+     * The key used for every request.
+     */
+    static final String DEFAULT_KEY = "isTheCryptidWhaleReallyHere";
+
+    private static final Histogram REQUEST_LATENCY = MetricsRegistry.shared().histogram(
+            "idea_request_duration_seconds", "Time to handle a request, by servlet.", "servlet", "RunIDEA");
+    private static final Counter ERRORS = MetricsRegistry.shared().counter(
+            "idea_errors_total", "Requests that failed, by servlet.", "servlet", "RunIDEA");
+
+    /**
+     * One cipher instance for the servlet, shared by all request threads. IDEA keeps
+     * no per-call state, so this is safe, and the key schedule is only computed once.
+     */
+    private IDEA ideaCipher;
+
+    /**
+     * Batches concurrent requests into bulk engine passes; null unless enabled
+     * with -Didea.coalesce=true (see {@link IDEACoalescer}). Each request
+     * blocks on it twice, encrypting and then decrypting, so it can add up to
+     * two coalescing windows to the request's latency.
+     */
+    private IDEACoalescer coalescer;
+
+    /**
+     * Builds the shared cipher once, when the container initialises the servlet,
+     * from the process-wide key schedule cache.
+     *
+     * @throws ServletException if a servlet-specific error occurs
+     */
+    @Override
+    public void init() throws ServletException {
+        ideaCipher = KeyScheduleCache.shared().cipher(DEFAULT_KEY);
+        coalescer = IDEACoalescer.fromSystemProperties();
+    }
+
+    /**
+     * Runs anything the coalescer still holds and stops its timer.
+     */
+    @Override
+    public void destroy() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
     /**
      * Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
      * This is where the core logic for fetching input, processing, and redirecting happens.
@@ -29,12 +81,25 @@ public class RunIDEA extends HttpServlet {
      */
     protected void processRequest(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            handleRequest(request, response);
+        } finally {
+            REQUEST_LATENCY.observe(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The work behind {@link #processRequest}, which times it.
+     */
+    private void handleRequest(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
 
         response.setContentType("text/html;charset=UTF-8"); // Standard content type for HTML response
 
         // 1. Fetch the input from the user
         // The HTML form sends the key with name="key" using POST method
-        String userKey = "isTheCryptidWhaleReallyHere";
+        String userKey = DEFAULT_KEY;
 
         // --- 2. Insert the process here ---
         // This is where you will integrate your IDEA algorithm logic.
@@ -47,14 +112,11 @@ public class RunIDEA extends HttpServlet {
 
         if (userKey != null && !userKey.trim().isEmpty()) {
             try {
-                // Initialize your IDEA cipher with the user-provided key
-                IDEA ideaCipher = new IDEA(userKey);
-
-                // Perform encryption
-                encryptedText = ideaCipher.encrypt(plainTextToEncrypt);
+                // Perform encryption; URL-safe Base64 displays cleanly on the result page
+                encryptedText = encrypt(plainTextToEncrypt);
 
                 // Perform decryption
-                decryptedText = ideaCipher.decrypt(encryptedText);
+                decryptedText = decrypt(encryptedText);
 
                 // You might want to store these results in the session so ResultPage.html can access them
                 HttpSession session = request.getSession();
@@ -64,13 +126,15 @@ public class RunIDEA extends HttpServlet {
                 session.setAttribute("decryptedResult", decryptedText);
 
             } catch (Exception e) {
-                // Log the exception for debugging purposes
-                e.printStackTrace();
+                // Log the exception for debugging purposes, and count it
+                ERRORS.increment();
+                log("An error occurred during encryption/decryption", e);
                 // Optionally, store an error message in session to display on ResultPage.html
                 HttpSession session = request.getSession();
                 session.setAttribute("errorMessage", "An error occurred during encryption/decryption: " + e.getMessage());
             }
         } else {
+             ERRORS.increment();
              HttpSession session = request.getSession();
              session.setAttribute("errorMessage", "Encryption key cannot be empty!");
         }
@@ -80,6 +144,44 @@ public class RunIDEA extends HttpServlet {
         response.sendRedirect("ResultPage.jsp");
     }
 
+    /**
+     * {@link IDEA#encryptToBase64}, through the coalescer when it is enabled.
+     */
+    private String encrypt(String text) {
+        if (coalescer == null) {
+            return ideaCipher.encryptToBase64(text);
+        }
+        byte[] clearText = text.getBytes(StandardCharsets.UTF_8);
+        byte[] cipherText = await(coalescer.encrypt(ideaCipher, clearText, 0, clearText.length));
+        return Utils.toBase64Url(cipherText, 0, cipherText.length);
+    }
+
+    /**
+     * {@link IDEA#decryptFromBase64}, through the coalescer when it is enabled.
+     */
+    private String decrypt(String text) {
+        if (coalescer == null) {
+            return ideaCipher.decryptFromBase64(text);
+        }
+        byte[] cipherText = Utils.fromBase64Url(text);
+        return new String(await(coalescer.decrypt(ideaCipher, cipherText, 0, cipherText.length)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits for a coalesced operation, rethrowing its own exception (such as
+     * a padding error) rather than the CompletionException wrapping it.
+     */
+    private static byte[] await(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Handles the HTTP <code>GET</code> method.
      * Delegates to processRequest.
@@ -0,0 +1,300 @@
+package Servlet;
+
+import Encryption.*;
+import Metrics.Counter;
+import Metrics.Histogram;
+import Metrics.MetricsRegistry;
+import java.io.IOException;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streaming counterpart of {@link RunIDEA}: POST a body to
+ * <code>/stream/encrypt</code> or <code>/stream/decrypt</code> and the
+ * cipher text (or plain text) comes back as the response body.
+ *
+ * The body is never collected in memory. It is processed with Servlet 3.1
+ * non-blocking I/O: a {@link ReadListener} picks up request data as it arrives,
+ * whole blocks are transformed and written straight back, and a
+ * {@link WriteListener} resumes reading once a slow client has caught up. No
+ * container thread ever blocks on the socket, and each request holds one
+ * fixed-size buffer. The bytes are the same ECB/PKCS#7 format as
+ * {@link IDEA#encrypt(String)} and {@link IDEAOutputStream}. A request that
+ * runs past {@link #ASYNC_TIMEOUT}, or that the container aborts, is ended and
+ * counted as an error like any other failure.
+ *
+ * @author User
+ */
+public class StreamIDEA extends HttpServlet {
+
+    /**
+     * Per-request buffer size in bytes (a multiple of the block size).
+     */
+    static final int BUFFER_SIZE = IDEAOutputStream.DEFAULT_BUFFER_SIZE;
+
+    /**
+     * How long a request may take before the container gives up on it, in milliseconds.
+     */
+    static final long ASYNC_TIMEOUT = 60_000;
+
+    private static final int BLOCK_SIZE = 8;
+
+    private static final Histogram REQUEST_LATENCY = MetricsRegistry.shared().histogram(
+            "idea_request_duration_seconds", "Time to handle a request, by servlet.", "servlet", "StreamIDEA");
+    private static final Counter ERRORS = MetricsRegistry.shared().counter(
+            "idea_errors_total", "Requests that failed, by servlet.", "servlet", "StreamIDEA");
+
+    private IDEA ideaCipher;
+
+    /**
+     * Builds the shared cipher once, from the process-wide key schedule cache.
+     *
+     * @throws ServletException if a servlet-specific error occurs
+     */
+    @Override
+    public void init() throws ServletException {
+        ideaCipher = KeyScheduleCache.shared().cipher(RunIDEA.DEFAULT_KEY);
+    }
+
+    /**
+     * Handles the HTTP <code>POST</code> method: starts async processing and
+     * returns the container thread straight away.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String pathInfo = request.getPathInfo();
+        boolean encrypting;
+        if ("/encrypt".equals(pathInfo)) {
+            encrypting = true;
+        } else if ("/decrypt".equals(pathInfo)) {
+            encrypting = false;
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Use /stream/encrypt or /stream/decrypt.");
+            return;
+        }
+        if (!request.isAsyncSupported()) {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Async processing is not enabled.");
+            return;
+        }
+
+        response.setContentType("application/octet-stream");
+        AsyncContext async = request.startAsync();
+        async.setTimeout(ASYNC_TIMEOUT);
+        Pump pump = new Pump(async, encrypting, request.getInputStream(), response.getOutputStream());
+        async.addListener(pump);
+        // Registering the listeners starts the I/O; from here on the container drives it
+        response.getOutputStream().setWriteListener(pump);
+        request.getInputStream().setReadListener(pump);
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Servlet for streaming IDEA encryption/decryption with non-blocking I/O.";
+    }
+
+    /**
+     * Moves one request's data from the input to the output through a single
+     * buffer. buffer[0, filled) holds bytes read but not yet written; whole
+     * blocks are transformed in place and written as soon as they may be
+     * released (decryption keeps the last block back for the padding check).
+     */
+    private final class Pump implements ReadListener, WriteListener, AsyncListener {
+
+        private final AsyncContext async;
+        private final boolean encrypting;
+        private final ServletInputStream input;
+        private final ServletOutputStream output;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final long start = System.nanoTime();
+        private int filled;
+        private boolean finalWritten;
+        private boolean done;
+
+        Pump(AsyncContext async, boolean encrypting, ServletInputStream input, ServletOutputStream output) {
+            this.async = async;
+            this.encrypting = encrypting;
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            pump();
+        }
+
+        @Override
+        public void onAllDataRead() throws IOException {
+            pump();
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            pump();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(t);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            fail(new IOException("Request timed out after " + ASYNC_TIMEOUT + " ms."), HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            Throwable t = event.getThrowable();
+            fail(t != null ? t : new IOException("Async processing failed."));
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Ended by pump() or fail(), which have already recorded it
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Not restarted
+        }
+
+        /**
+         * Does as much work as possible without blocking, then returns. Output
+         * readiness is checked first: while the client is not reading, no more
+         * input is taken either, which keeps the memory per request fixed. The
+         * container calls back (onDataAvailable or onWritePossible) when either
+         * side can make progress again. The listener callbacks may come from
+         * different threads, hence the lock.
+         */
+        private synchronized void pump() throws IOException {
+            try {
+                while (!done && output.isReady()) {
+                    if (finalWritten) {
+                        done = true;
+                        async.complete();
+                        REQUEST_LATENCY.observe(System.nanoTime() - start);
+                        return;
+                    }
+                    int release = releasable();
+                    if (release > 0) {
+                        transform(release);
+                        output.write(buffer, 0, release);
+                        filled -= release;
+                        System.arraycopy(buffer, release, buffer, 0, filled);
+                        continue;
+                    }
+                    if (input.isFinished()) {
+                        writeFinal();
+                        continue;
+                    }
+                    if (!input.isReady()) {
+                        return;
+                    }
+                    int n = input.read(buffer, filled, buffer.length - filled);
+                    if (n > 0) {
+                        filled += n;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * How many leading bytes of the buffer are whole blocks that can be written out now.
+         */
+        private int releasable() {
+            int whole = filled - filled % BLOCK_SIZE;
+            if (!encrypting) {
+                whole -= BLOCK_SIZE; // Might be the padding block
+            }
+            return whole;
+        }
+
+        private void transform(int len) {
+            if (encrypting) {
+                ideaCipher.encryptBlocks(buffer, 0, len, buffer, 0);
+            } else {
+                ideaCipher.decryptBlocks(buffer, 0, len, buffer, 0);
+            }
+        }
+
+        /**
+         * End of the request body: pad and encrypt, or decrypt and unpad, what is left.
+         */
+        private void writeFinal() throws IOException {
+            finalWritten = true;
+            if (encrypting) {
+                int paddingNeeded = BLOCK_SIZE - (filled % BLOCK_SIZE); // A full block when already aligned
+                for (int i = 0; i < paddingNeeded; i++) {
+                    buffer[filled++] = (byte) paddingNeeded;
+                }
+                transform(filled);
+                output.write(buffer, 0, filled);
+                filled = 0;
+                return;
+            }
+            if (filled == 0) {
+                return; // Empty cipher text, empty plain text
+            }
+            if (filled != BLOCK_SIZE) {
+                CipherMetrics.INVALID_PADDING.increment();
+                throw new IOException("Encrypted stream length is not a multiple of block size.");
+            }
+            transform(filled);
+            int paddingLength;
+            try {
+                paddingLength = IDEA.checkPadding(buffer, filled);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            output.write(buffer, 0, filled - paddingLength);
+            filled = 0;
+        }
+
+        private void fail(Throwable t) {
+            fail(t, HttpServletResponse.SC_BAD_REQUEST);
+        }
+
+        /**
+         * Ends the request after an error, once: callbacks that arrive after
+         * the request has ended do nothing. If nothing has been sent yet the
+         * client gets the given status; otherwise the status has already gone
+         * out, and the response is cut short.
+         */
+        private synchronized void fail(Throwable t, int status) {
+            if (done) {
+                return;
+            }
+            done = true;
+            ERRORS.increment();
+            log("Streaming " + (encrypting ? "encryption" : "decryption") + " failed: " + t.getMessage(), t);
+            HttpServletResponse response = (HttpServletResponse) async.getResponse();
+            if (!response.isCommitted()) {
+                response.setStatus(status);
+            }
+            async.complete();
+            REQUEST_LATENCY.observe(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Sidecar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Client for {@link SidecarServer}. One connection, safe to share between
+ * threads. The async methods pipeline: they send the request and return at
+ * once, and a reader thread completes the futures as the responses arrive.
+ * At most {@code maxInFlight} requests are outstanding; beyond that, senders
+ * wait, so a fast producer cannot run ahead of the server without bound.
+ *
+ * Server-side rejections (bad length or padding, unknown key id) complete the
+ * future with an IllegalArgumentException; connection failures with an
+ * IOException, and the client is then unusable.
+ *
+ * @author User
+ */
+public final class SidecarClient implements Closeable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final Semaphore inFlight;
+    private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+    private int nextRequestId;
+    private volatile IOException failure;
+
+    /**
+     * Constructor, default in-flight limit.
+     *
+     * @param host The server host.
+     * @param port The server port.
+     * @throws IOException if the connection fails
+     */
+    public SidecarClient(String host, int port) throws IOException {
+        this(host, port, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param host The server host.
+     * @param port The server port.
+     * @param maxInFlight The most requests sent and not yet answered.
+     * @throws IOException if the connection fails
+     */
+    public SidecarClient(String host, int port, int maxInFlight) throws IOException {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive.");
+        }
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), SidecarServer.BUFFER_SIZE));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), SidecarServer.BUFFER_SIZE));
+        inFlight = new Semaphore(maxInFlight);
+        reader = new Thread(this::readResponses, "idea-sidecar-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Sends an encryption request without waiting for the answer.
+     *
+     * @param keyId The key id on the server.
+     * @param data The clear text buffer.
+     * @param off The offset of the clear text.
+     * @param len The length of the clear text.
+     * @return Completes with the padded cipher text.
+     */
+    public CompletableFuture<byte[]> encryptAsync(int keyId, byte[] data, int off, int len) {
+        return send(SidecarProtocol.OP_ENCRYPT, keyId, data, off, len);
+    }
+
+    /**
+     * Sends a decryption request without waiting for the answer.
+     *
+     * @param keyId The key id on the server.
+     * @param data The cipher text buffer.
+     * @param off The offset of the cipher text.
+     * @param len The length of the cipher text.
+     * @return Completes with the clear text.
+     */
+    public CompletableFuture<byte[]> decryptAsync(int keyId, byte[] data, int off, int len) {
+        return send(SidecarProtocol.OP_DECRYPT, keyId, data, off, len);
+    }
+
+    /**
+     * Encrypts and waits for the result.
+     *
+     * @param keyId The key id on the server.
+     * @param data The clear text.
+     * @return The padded cipher text.
+     * @throws IOException if the connection fails
+     * @throws IllegalArgumentException if the server rejects the request
+     */
+    public byte[] encrypt(int keyId, byte[] data) throws IOException {
+        return await(encryptAsync(keyId, data, 0, data.length));
+    }
+
+    /**
+     * Decrypts and waits for the result.
+     *
+     * @param keyId The key id on the server.
+     * @param data The cipher text.
+     * @return The clear text.
+     * @throws IOException if the connection fails
+     * @throws IllegalArgumentException if the server rejects the request
+     */
+    public byte[] decrypt(int keyId, byte[] data) throws IOException {
+        return await(decryptAsync(keyId, data, 0, data.length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        fail(new IOException("Client closed"));
+    }
+
+    private CompletableFuture<byte[]> send(byte op, int keyId, byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || data.length - off < len) {
+            throw new IllegalArgumentException("Byte range outside the array.");
+        }
+        if (len > SidecarProtocol.MAX_FRAME_SIZE - SidecarProtocol.REQUEST_HEADER_SIZE) {
+            throw new IllegalArgumentException("Request too large.");
+        }
+        Pending request = new Pending();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(e);
+            return request.future;
+        }
+        synchronized (out) {
+            request.id = nextRequestId++;
+            pending.add(request);
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                out.writeInt(SidecarProtocol.REQUEST_HEADER_SIZE + len);
+                out.writeInt(request.id);
+                out.writeInt(keyId);
+                out.writeByte(op);
+                out.write(data, off, len);
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return request.future;
+    }
+
+    /**
+     * Reader thread: completes the oldest outstanding request with each response.
+     */
+    private void readResponses() {
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < SidecarProtocol.RESPONSE_HEADER_SIZE || length > SidecarProtocol.MAX_FRAME_SIZE) {
+                    throw new IOException("Bad response frame length " + length);
+                }
+                int id = in.readInt();
+                byte status = in.readByte();
+                byte[] payload = new byte[length - SidecarProtocol.RESPONSE_HEADER_SIZE];
+                in.readFully(payload);
+                Pending request = pending.poll();
+                if (request == null || request.id != id) {
+                    throw new IOException("Response " + id + " does not match the oldest request.");
+                }
+                inFlight.release();
+                if (status == SidecarProtocol.STATUS_OK) {
+                    request.future.complete(payload);
+                } else {
+                    request.future.completeExceptionally(new IllegalArgumentException(
+                            new String(payload, StandardCharsets.UTF_8)));
+                }
+            }
+        } catch (EOFException e) {
+            fail(new IOException("Connection closed by the server", e));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Fails every outstanding and future request, and closes the socket, which
+     * also stops the reader thread.
+     */
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already failed; nothing more to report
+        }
+        for (Pending request; (request = pending.poll()) != null;) {
+            inFlight.release();
+            request.future.completeExceptionally(failure);
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class Pending {
+
+        int id;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+    }
+}
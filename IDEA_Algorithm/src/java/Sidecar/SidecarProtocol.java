@@ -0,0 +1,65 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Sidecar;
+
+/**
+ * The sidecar's binary protocol. Every message is a frame: a 4-byte
+ * big-endian length, then that many bytes.
+ *
+ * <pre>
+ *   request:  length | request id (4) | key id (4) | op (1)     | payload
+ *   response: length | request id (4) | status (1)              | payload
+ * </pre>
+ *
+ * The key id selects a key loaded into the server's
+ * {@link Encryption.TenantKeyStore}. The ops are {@link #OP_ENCRYPT} and
+ * {@link #OP_DECRYPT}, with the same PKCS#7 padding as
+ * {@code IDEA.encryptBytes}. A successful response carries the result; an
+ * error response carries a UTF-8 message. Clients may pipeline: send any
+ * number of requests without waiting, and the responses come back in the
+ * same order, each echoing its request id.
+ *
+ * @author User
+ */
+public final class SidecarProtocol {
+
+    public static final byte OP_ENCRYPT = 1;
+    public static final byte OP_DECRYPT = 2;
+
+    public static final byte STATUS_OK = 0;
+
+    /**
+     * Bad op, bad cipher text length or padding; the connection stays usable.
+     */
+    public static final byte STATUS_BAD_REQUEST = 1;
+
+    /**
+     * No key is loaded under the key id.
+     */
+    public static final byte STATUS_UNKNOWN_KEY = 2;
+
+    /**
+     * Size of the length prefix.
+     */
+    public static final int LENGTH_SIZE = 4;
+
+    /**
+     * Request id, key id and op, after the length.
+     */
+    public static final int REQUEST_HEADER_SIZE = 9;
+
+    /**
+     * Request id and status, after the length.
+     */
+    public static final int RESPONSE_HEADER_SIZE = 5;
+
+    /**
+     * Largest frame accepted, in bytes after the length; bigger ones close the connection.
+     */
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private SidecarProtocol() {
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Sidecar;
+
+import Encryption.TenantKeyStore;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Standalone TCP encryption server for services that want IDEA without HTTP:
+ * the {@link SidecarProtocol} over plain sockets, keys addressed by id in a
+ * {@link TenantKeyStore}.
+ *
+ * One acceptor thread hands connections round-robin to a fixed number of
+ * event loops, each a {@link Selector} on its own thread that reads, runs the
+ * cipher and writes for its connections without ever blocking. Socket I/O
+ * goes through direct buffers from a shared {@link BufferPool}. Every
+ * complete request in the input is answered before reading again, so a
+ * client may pipeline as many requests as it likes; responses go out in
+ * order. When a connection has more than {@link #HIGH_WATER_MARK} bytes of
+ * responses the client has not read yet, the loop stops reading from it (and
+ * so the client's sends eventually block) until the backlog falls under
+ * {@link #LOW_WATER_MARK}.
+ *
+ * <pre>
+ *   java -cp build/web/WEB-INF/classes Sidecar.SidecarServer -port 7070 -keys keys.properties
+ * </pre>
+ *
+ * keys.properties holds one {@code id=key} line per key, e.g. {@code 1=isTheCryptidWhaleReallyHere}.
+ *
+ * @author User
+ */
+public final class SidecarServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7070;
+
+    /**
+     * Size of each pooled I/O buffer.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Unsent response bytes at which a connection stops being read.
+     */
+    public static final int HIGH_WATER_MARK = 1024 * 1024;
+
+    /**
+     * Unsent response bytes under which a paused connection is read again.
+     */
+    public static final int LOW_WATER_MARK = 256 * 1024;
+
+    private final TenantKeyStore keys;
+    private final BufferPool pool;
+    private final Loop[] loops;
+    private ServerSocketChannel server;
+    private Thread acceptor;
+
+    /**
+     * Constructor.
+     *
+     * @param keys The keys, by id.
+     * @param threads The number of event loops.
+     */
+    public SidecarServer(TenantKeyStore keys, int threads) {
+        if (keys == null || threads < 1) {
+            throw new IllegalArgumentException("Keys cannot be null and at least one thread is needed.");
+        }
+        this.keys = keys;
+        this.pool = new BufferPool(BUFFER_SIZE, 64 * threads);
+        this.loops = new Loop[threads];
+    }
+
+    /**
+     * Binds and starts serving.
+     *
+     * @param address The address to listen on; port 0 picks a free port.
+     * @return The port listened on.
+     * @throws IOException if the socket cannot be bound
+     */
+    public synchronized int start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Already started.");
+        }
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new Loop(Selector.open());
+            Thread thread = new Thread(loops[i], "idea-sidecar-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        acceptor = new Thread(this::accept, "idea-sidecar-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Stops accepting, closes every connection and stops the loops.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (server == null) {
+            return;
+        }
+        server.close();
+        for (Loop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                return; // Closed
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                continue;
+            }
+            loops[next].add(channel);
+            next = (next + 1) % loops.length;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String keyFile = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-host":
+                    host = args[i + 1];
+                    break;
+                case "-port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-keys":
+                    keyFile = args[i + 1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (keyFile == null) {
+            throw new IllegalArgumentException("Usage: SidecarServer -keys keys.properties [-host h] [-port p] [-threads n]");
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(keyFile))) {
+            properties.load(in);
+        }
+        int maxId = 0;
+        for (String id : properties.stringPropertyNames()) {
+            maxId = Math.max(maxId, Integer.parseInt(id.trim()));
+        }
+        TenantKeyStore keys = new TenantKeyStore(maxId + 1);
+        for (String id : properties.stringPropertyNames()) {
+            keys.put(Integer.parseInt(id.trim()), properties.getProperty(id));
+        }
+        SidecarServer server = new SidecarServer(keys, threads);
+        int bound = server.start(new InetSocketAddress(host, port));
+        System.out.println("IDEA sidecar listening on " + host + ":" + bound + " with " + keys.size() + " keys");
+        Thread.currentThread().join();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing more to do with it
+        }
+    }
+
+    /**
+     * One event loop and the connections assigned to it.
+     */
+    private final class Loop implements Runnable {
+
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        Loop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void add(SocketChannel channel) {
+            incoming.add(channel);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    for (SocketChannel channel; (channel = incoming.poll()) != null;) {
+                        try {
+                            Connection connection = new Connection(channel);
+                            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                        } catch (ClosedChannelException e) {
+                            closeQuietly(channel);
+                        }
+                    }
+                    for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Selector failure: fall through and drop the connections
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                for (SocketChannel channel; (channel = incoming.poll()) != null;) {
+                    closeQuietly(channel);
+                }
+                closeQuietly(selector);
+            }
+        }
+    }
+
+    /**
+     * One client connection; only ever touched by its loop's thread.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        SelectionKey key;
+
+        /**
+         * Bytes read but not yet consumed; kept in write (fill) mode.
+         */
+        private final ByteBuffer in;
+
+        /**
+         * The request being assembled: its length (-1 while reading the
+         * length prefix) and how much of it has arrived.
+         */
+        private int frameLength = -1;
+        private int frameFilled;
+        private byte[] frame = new byte[BUFFER_SIZE];
+
+        /**
+         * Responses ready to send (read mode), plus the one being filled.
+         */
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        private ByteBuffer tail;
+        private long pending;
+        private boolean paused;
+        private boolean closed;
+        private final byte[] header = new byte[SidecarProtocol.LENGTH_SIZE + SidecarProtocol.RESPONSE_HEADER_SIZE];
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = pool.acquire();
+        }
+
+        void read() throws IOException {
+            int n = channel.read(in);
+            if (n < 0) {
+                close();
+                return;
+            }
+            process();
+            write();
+        }
+
+        /**
+         * Sends what the socket takes now and waits for OP_WRITE for the
+         * rest. Once the backlog is small enough, a paused connection
+         * answers the requests that arrived meanwhile and is read again.
+         */
+        void write() throws IOException {
+            while (!closed) {
+                flush();
+                if (!paused || pending >= LOW_WATER_MARK) {
+                    break;
+                }
+                paused = false;
+                process();
+            }
+            if (closed) {
+                return;
+            }
+            key.interestOps((paused ? 0 : SelectionKey.OP_READ) | (out.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+
+        private void flush() throws IOException {
+            if (tail != null && tail.position() > 0) {
+                tail.flip();
+                out.add(tail);
+                tail = null;
+            }
+            while (!out.isEmpty()) {
+                ByteBuffer head = out.peek();
+                pending -= channel.write(head);
+                if (head.hasRemaining()) {
+                    return; // Socket buffer full
+                }
+                pool.release(out.poll());
+            }
+        }
+
+        /**
+         * Answers every complete request in the input, unless the backlog
+         * of unsent responses is too big.
+         */
+        private void process() {
+            in.flip();
+            try {
+                while (!paused) {
+                    if (frameLength < 0) {
+                        if (in.remaining() < SidecarProtocol.LENGTH_SIZE) {
+                            return;
+                        }
+                        frameLength = in.getInt();
+                        if (frameLength < SidecarProtocol.REQUEST_HEADER_SIZE || frameLength > SidecarProtocol.MAX_FRAME_SIZE) {
+                            close(); // Not our protocol, or a runaway client
+                            return;
+                        }
+                        if (frame.length < frameLength) {
+                            frame = new byte[frameLength];
+                        }
+                        frameFilled = 0;
+                    }
+                    int n = Math.min(in.remaining(), frameLength - frameFilled);
+                    in.get(frame, frameFilled, n);
+                    frameFilled += n;
+                    if (frameFilled < frameLength) {
+                        return;
+                    }
+                    handle(frame, frameLength);
+                    frameLength = -1;
+                    if (frame.length > BUFFER_SIZE) {
+                        frame = new byte[BUFFER_SIZE]; // Don't hold on to one huge request
+                    }
+                    paused = pending >= HIGH_WATER_MARK;
+                }
+            } finally {
+                if (!closed) {
+                    in.compact();
+                }
+            }
+        }
+
+        private void handle(byte[] request, int length) {
+            int requestId = readInt(request, 0);
+            int keyId = readInt(request, 4);
+            byte op = request[8];
+            int payload = SidecarProtocol.REQUEST_HEADER_SIZE;
+            byte status = SidecarProtocol.STATUS_OK;
+            byte[] result;
+            try {
+                switch (op) {
+                    case SidecarProtocol.OP_ENCRYPT:
+                        result = keys.encryptBytes(keyId, request, payload, length - payload);
+                        break;
+                    case SidecarProtocol.OP_DECRYPT:
+                        result = keys.decryptBytes(keyId, request, payload, length - payload);
+                        break;
+                    default:
+                        status = SidecarProtocol.STATUS_BAD_REQUEST;
+                        result = ("Unknown op " + op + ".").getBytes(StandardCharsets.UTF_8);
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                status = keys.contains(keyId) ? SidecarProtocol.STATUS_BAD_REQUEST : SidecarProtocol.STATUS_UNKNOWN_KEY;
+                result = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            }
+            writeInt(SidecarProtocol.RESPONSE_HEADER_SIZE + result.length, header, 0);
+            writeInt(requestId, header, 4);
+            header[8] = status;
+            append(header, header.length);
+            append(result, result.length);
+        }
+
+        /**
+         * Queues bytes for sending, in as many pooled buffers as it takes.
+         */
+        private void append(byte[] src, int len) {
+            for (int off = 0; off < len;) {
+                if (tail == null || !tail.hasRemaining()) {
+                    if (tail != null) {
+                        tail.flip();
+                        out.add(tail);
+                    }
+                    tail = pool.acquire();
+                }
+                int n = Math.min(len - off, tail.remaining());
+                tail.put(src, off, n);
+                off += n;
+            }
+            pending += len;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+            pool.release(in);
+            if (tail != null) {
+                pool.release(tail);
+            }
+            for (ByteBuffer buffer; (buffer = out.poll()) != null;) {
+                pool.release(buffer);
+            }
+        }
+    }
+
+    private static int readInt(byte[] buf, int off) {
+        return (buf[off] & 0xff) << 24 | (buf[off + 1] & 0xff) << 16 | (buf[off + 2] & 0xff) << 8 | (buf[off + 3] & 0xff);
+    }
+
+    private static void writeInt(int value, byte[] buf, int off) {
+        buf[off] = (byte) (value >>> 24);
+        buf[off + 1] = (byte) (value >>> 16);
+        buf[off + 2] = (byte) (value >>> 8);
+        buf[off + 3] = (byte) value;
+    }
+}
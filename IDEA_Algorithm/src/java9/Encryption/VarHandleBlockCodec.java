@@ -0,0 +1,42 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * {@link BlockCodec} on byte-array view VarHandles: each 64-bit word is one
+ * (possibly unaligned, byte-swapped) memory access instead of eight byte loads
+ * and shifts. Needs Java 9; picked up by {@link BlockCodec#CODEC} when present.
+ *
+ * @author User
+ */
+final class VarHandleBlockCodec extends BlockCodec {
+
+    private static final VarHandle BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    long getLong(byte[] in, int off) {
+        return (long) BIG_ENDIAN.get(in, off);
+    }
+
+    @Override
+    void putLong(long value, byte[] out, int off) {
+        BIG_ENDIAN.set(out, off, value);
+    }
+
+    @Override
+    long getLongLittle(byte[] in, int off) {
+        return (long) LITTLE_ENDIAN.get(in, off);
+    }
+
+    @Override
+    void putLongLittle(long value, byte[] out, int off) {
+        LITTLE_ENDIAN.set(out, off, value);
+    }
+}
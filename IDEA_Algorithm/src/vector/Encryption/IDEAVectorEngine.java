@@ -0,0 +1,127 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Encryption;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * IDEA on the Java Vector API: each SIMD lane holds one block, so a 256-bit
+ * vector runs 8 blocks through the rounds at once and a 512-bit vector 16.
+ * The blocks' four 16-bit words are transposed into four int vectors, every
+ * round key is broadcast, and the mod 65537 multiply is the same low/high word
+ * subtraction as {@link IDEAKernel#mulFast}, with the "0 means 2^16" operands
+ * handled by a lane mask instead of a branch.
+ *
+ * This file needs JDK 16+ and {@code --add-modules jdk.incubator.vector} both
+ * to compile and to run, which is why it lives outside src/java. It is only
+ * loaded by name from {@link IDEAInterleaved}, which checks it against the
+ * scalar code and falls back to that when it cannot be loaded.
+ *
+ * @author User
+ */
+final class IDEAVectorEngine implements MultiBlockEngine {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Blocks per SIMD pass.
+     */
+    private static final int WIDTH = SPECIES.length();
+
+    /**
+     * Transposed words for the pass in progress on this thread: w1 to w4, WIDTH
+     * ints each, one after the other. Kept so that bulk calls do not allocate.
+     */
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[4 * WIDTH]);
+
+    @Override
+    public int batchBlocks() {
+        return 8 * WIDTH;
+    }
+
+    @Override
+    public void idea(long[] blocks, int off, int count, int[] keys) {
+        int end = off + count;
+        if (end - off >= WIDTH) {
+            int[] w = SCRATCH.get();
+            for (; end - off >= WIDTH; off += WIDTH) {
+                // Transpose: lane i gets the four words of block off + i
+                for (int i = 0; i < WIDTH; ++i) {
+                    long block = blocks[off + i];
+                    w[i] = (int) (block >>> 48) & 0xffff;
+                    w[WIDTH + i] = (int) (block >>> 32) & 0xffff;
+                    w[2 * WIDTH + i] = (int) (block >>> 16) & 0xffff;
+                    w[3 * WIDTH + i] = (int) block & 0xffff;
+                }
+                rounds(w, keys);
+                for (int i = 0; i < WIDTH; ++i) {
+                    blocks[off + i] = ((long) w[i] << 48) | ((long) w[WIDTH + i] << 32)
+                            | ((long) w[2 * WIDTH + i] << 16) | w[3 * WIDTH + i];
+                }
+            }
+        }
+        for (; off < end; ++off) {
+            blocks[off] = IDEA.idea(blocks[off], keys);
+        }
+    }
+
+    /**
+     * The eight rounds and the output transformation on one vector of blocks,
+     * step for step as in {@link IDEA#idea}. Reads the four words from the
+     * scratch array and writes the results back to it.
+     */
+    private static void rounds(int[] w, int[] keys) {
+        IntVector x1 = IntVector.fromArray(SPECIES, w, 0);
+        IntVector x2 = IntVector.fromArray(SPECIES, w, WIDTH);
+        IntVector x3 = IntVector.fromArray(SPECIES, w, 2 * WIDTH);
+        IntVector x4 = IntVector.fromArray(SPECIES, w, 3 * WIDTH);
+        int k = 0;
+
+        for (int round = 0; round < 8; ++round) { // 8 full rounds
+            x1 = mul(x1, keys[k++]);
+            x2 = x2.add(keys[k++]).and(0xffff);
+            x3 = x3.add(keys[k++]).and(0xffff);
+            x4 = mul(x4, keys[k++]);
+
+            IntVector t2 = mul(x1.lanewise(VectorOperators.XOR, x3), keys[k++]);
+            IntVector t1 = mul(t2.add(x2.lanewise(VectorOperators.XOR, x4)).and(0xffff), keys[k++]);
+            t2 = t1.add(t2).and(0xffff);
+
+            x1 = x1.lanewise(VectorOperators.XOR, t1);
+            x4 = x4.lanewise(VectorOperators.XOR, t2);
+            IntVector nextX2 = x3.lanewise(VectorOperators.XOR, t1);
+            x3 = x2.lanewise(VectorOperators.XOR, t2);
+            x2 = nextX2;
+        }
+
+        // Final output transformation (x2 and x3 swapped back)
+        mul(x1, keys[k++]).intoArray(w, 0);
+        x3.add(keys[k++]).and(0xffff).intoArray(w, WIDTH);
+        x2.add(keys[k++]).and(0xffff).intoArray(w, 2 * WIDTH);
+        mul(x4, keys[k]).intoArray(w, 3 * WIDTH);
+    }
+
+    /**
+     * Lane-wise multiplication modulo 65537 by a round key. Operands are
+     * 16-bit values where 0 stands for 2^16; so is the result.
+     */
+    private static IntVector mul(IntVector a, int key) {
+        key &= 0xffff;
+        if (key == 0) {
+            // 2^16 * a = -a = 1 - a (mod 65537, low 16 bits); depends on the key only
+            return a.neg().add(1).and(0xffff);
+        }
+        // a * key < 2^32: exact as an unsigned int; split with logical shifts
+        IntVector p = a.mul(key);
+        IntVector r = p.and(0xffff).sub(p.lanewise(VectorOperators.LSHR, 16));
+        r = r.add(r.lanewise(VectorOperators.ASHR, 31).and(65537));
+        // Lanes where a is 0 (i.e. 2^16): 2^16 * key = 1 - key
+        VectorMask<Integer> zero = a.eq(0);
+        return r.blend((1 - key) & 0xffff, zero).and(0xffff);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * CBC mode: the bulk API against the JCA cipher, and the parallel decryption
+ * path (forced with a private pool, since the common pool may have a single
+ * thread) against the sequential one.
+ *
+ * @author User
+ */
+public class CBCModeTest {
+
+    private static final byte[] KEY = "0123456789abcdef".getBytes();
+
+    /**
+     * A piece length that is a whole number of blocks but not of segments.
+     */
+    private static final int PIECE = CBCMode.SEGMENT_SIZE + 8 * 1000;
+
+    private final IDEAKeySchedule schedule = new IDEAKeySchedule(KEY);
+    private final CBCMode cbc = new CBCMode(schedule);
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final CBCMode parallel = new CBCMode(schedule, pool, 0); // Threshold: one segment
+    private final Random random = new Random(3);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void matchesJcaCipher() throws Exception {
+        long iv = random.nextLong();
+        byte[] ivBytes = new byte[CBCMode.IV_SIZE];
+        Utils.spreadLongToBytes(iv, ivBytes, 0);
+        for (int len = 0; len <= 300; len += len < 20 ? 1 : 37) {
+            byte[] data = bytes(len);
+            Cipher jca = Cipher.getInstance("IDEA/CBC/PKCS5Padding", new IDEAProvider());
+            jca.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "IDEA"), new IvParameterSpec(ivBytes));
+            byte[] sealed = cbc.encrypt(iv, data, 0, len);
+            assertArrayEquals("length " + len, jca.doFinal(data), sealed);
+            assertArrayEquals("length " + len, data, cbc.decrypt(iv, sealed, 0, sealed.length));
+        }
+    }
+
+    @Test
+    public void parallelDecryptionInPlace() {
+        long iv = random.nextLong();
+        int len = 300 * 1024 + 40; // Several segments and a short last one
+        byte[] plain = bytes(len);
+        byte[] buffer = plain.clone();
+        long encryptChain = cbc.encryptBlocks(iv, buffer, 0, len, buffer, 0);
+        byte[] sealed = buffer.clone();
+
+        long decryptChain = parallel.decryptBlocks(iv, buffer, 0, len, buffer, 0);
+        assertEquals(encryptChain, decryptChain);
+        assertArrayEquals(plain, buffer);
+
+        byte[] out = new byte[len + 16];
+        parallel.decryptBlocks(iv, sealed, 0, len, out, 16); // Out of place, shifted
+        assertArrayEquals(plain, Arrays.copyOfRange(out, 16, out.length));
+    }
+
+    @Test
+    public void decryptionInPiecesChains() {
+        long iv = random.nextLong();
+        byte[] plain = bytes(PIECE * 3);
+        byte[] sealed = plain.clone();
+        cbc.encryptBlocks(iv, sealed, 0, sealed.length, sealed, 0);
+        byte[] out = new byte[sealed.length];
+        long chain = parallel.decryptBlocks(iv, sealed, 0, PIECE * 2, out, 0);
+        parallel.decryptBlocks(chain, sealed, PIECE * 2, PIECE, out, PIECE * 2);
+        assertArrayEquals(plain, out);
+    }
+
+    @Test
+    public void convenienceMethodsRoundTrip() {
+        for (int len = 0; len <= 40; len++) {
+            byte[] data = bytes(len);
+            byte[] sealed = cbc.encrypt(data);
+            assertEquals(CBCMode.IV_SIZE + len + 8 - len % 8, sealed.length);
+            assertArrayEquals(data, cbc.decrypt(sealed));
+        }
+        byte[] large = bytes(400 * 1024);
+        assertArrayEquals(large, parallel.decrypt(parallel.encrypt(large)));
+    }
+
+    @Test
+    public void recordsMetrics() {
+        long encrypted = CipherMetrics.ENCRYPT_BYTES.sum();
+        long decrypted = CipherMetrics.DECRYPT_BYTES.sum();
+        cbc.decrypt(cbc.encrypt(bytes(100)));
+        assertTrue(CipherMetrics.ENCRYPT_BYTES.sum() - encrypted >= 104);
+        assertTrue(CipherMetrics.DECRYPT_BYTES.sum() - decrypted >= 104);
+    }
+
+    private byte[] bytes(int len) {
+        byte[] b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+}
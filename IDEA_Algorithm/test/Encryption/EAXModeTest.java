@@ -0,0 +1,289 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.AEADBadTagException;
+import org.junit.Test;
+
+/**
+ * EAX mode and its streams. IDEA-EAX has no published test vectors, so the
+ * bulk output is also checked against a small independent implementation
+ * written from the EAX paper (OMAC with byte-wise tweaks, doubling in
+ * GF(2^64) with the polynomial x^64 + x^4 + x^3 + x + 1).
+ *
+ * @author User
+ */
+public class EAXModeTest {
+
+    private static final byte[] KEY = {1, 8, 15, 22, 29, 36, 43, 50, 57, 64, 71, 78, 85, 92, 99, 106};
+
+    private final IDEAKeySchedule schedule = new IDEAKeySchedule(KEY);
+    private final EAXMode eax = new EAXMode(schedule);
+    private final Random random = new Random(42);
+
+    @Test
+    public void roundTripsEveryLengthWithAndWithoutHeader() throws Exception {
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        for (byte[] header : new byte[][]{null, new byte[0], bytes(13)}) {
+            for (int len = 0; len <= 2 * EAXMode.CHUNK_SIZE + 9; len += len < 40 ? 1 : 487) {
+                byte[] data = bytes(len);
+                byte[] sealed = eax.encrypt(nonce, header, data, 0, len);
+                assertEquals(len + EAXMode.TAG_SIZE, sealed.length);
+                assertArrayEquals("length " + len, data, eax.decrypt(nonce, header, sealed, 0, sealed.length));
+            }
+        }
+        byte[] data = bytes(100);
+        assertArrayEquals(data, eax.decrypt(eax.encrypt(data)));
+    }
+
+    @Test
+    public void matchesIndependentReference() {
+        Reference reference = new Reference(schedule.encryptKeys());
+        for (int len = 0; len <= 70; len++) {
+            byte[] nonce = bytes(random.nextInt(20));
+            byte[] header = random.nextBoolean() ? null : bytes(random.nextInt(30));
+            byte[] data = bytes(len);
+            assertArrayEquals("length " + len, reference.encrypt(nonce, header, data),
+                    eax.encrypt(nonce, header, data, 0, len));
+        }
+    }
+
+    @Test
+    public void anySingleBitFlipFailsVerification() {
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        byte[] header = bytes(11);
+        byte[] sealed = eax.encrypt(nonce, header, bytes(21), 0, 21);
+        for (int bit = 0; bit < nonce.length * 8; bit++) {
+            assertRejected(flip(nonce, bit), header, sealed);
+        }
+        for (int bit = 0; bit < header.length * 8; bit++) {
+            assertRejected(nonce, flip(header, bit), sealed);
+        }
+        for (int bit = 0; bit < sealed.length * 8; bit++) { // Cipher text, then the tag
+            assertRejected(nonce, header, flip(sealed, bit));
+        }
+    }
+
+    @Test
+    public void outputStreamMatchesBulkForOddBufferSizes() throws IOException {
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        byte[] header = bytes(5);
+        for (int bufferSize : new int[]{EAXMode.TAG_SIZE, 9, 13, 31, 1021}) {
+            for (int len : new int[]{0, 1, 7, 8, 9, 100, 5000}) {
+                byte[] data = bytes(len);
+                ByteArrayOutputStream sink = new ByteArrayOutputStream();
+                try (EAXOutputStream out = new EAXOutputStream(sink, eax, nonce, header, bufferSize)) {
+                    for (int off = 0; off < len;) {
+                        int n = Math.min(len - off, 1 + random.nextInt(17));
+                        if (n == 1) {
+                            out.write(data[off]);
+                        } else {
+                            out.write(data, off, n);
+                        }
+                        off += n;
+                    }
+                }
+                assertArrayEquals("buffer " + bufferSize + ", length " + len,
+                        eax.encrypt(nonce, header, data, 0, len), sink.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void inputStreamDecryptsWhatBulkSealed() throws IOException {
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        for (int bufferSize : new int[]{EAXMode.TAG_SIZE + 1, 17, 8192}) {
+            byte[] data = bytes(3000);
+            byte[] sealed = eax.encrypt(nonce, null, data, 0, data.length);
+            InputStream in = new EAXInputStream(new ByteArrayInputStream(sealed), eax, nonce, null, bufferSize);
+            assertArrayEquals(data, readAll(in));
+        }
+    }
+
+    @Test
+    public void inputStreamRejectsTamperedStream() throws IOException {
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        byte[] sealed = eax.encrypt(nonce, null, bytes(300), 0, 300);
+        for (int at : new int[]{0, 150, sealed.length - 1}) {
+            byte[] tampered = flip(sealed, at * 8);
+            InputStream in = new EAXInputStream(new ByteArrayInputStream(tampered), eax, nonce, null);
+            IOException first = assertBadTag(in);
+            // The failure sticks: later reads must not look like a clean end of stream
+            try {
+                in.read();
+                fail("Read after a failed tag check returned normally.");
+            } catch (IOException e) {
+                assertSame(first, e);
+            }
+        }
+    }
+
+    @Test
+    public void inputStreamRejectsTruncatedStream() throws IOException {
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        byte[] sealed = eax.encrypt(nonce, null, bytes(300), 0, 300);
+        for (int len : new int[]{0, 3, EAXMode.TAG_SIZE, 200, sealed.length - 1}) {
+            InputStream in = new EAXInputStream(new ByteArrayInputStream(sealed, 0, len), eax, nonce, null);
+            assertBadTag(in);
+        }
+    }
+
+    @Test
+    public void recordsMetrics() throws IOException {
+        long encrypted = CipherMetrics.ENCRYPT_BYTES.sum();
+        long decrypted = CipherMetrics.DECRYPT_BYTES.sum();
+        byte[] nonce = bytes(EAXMode.NONCE_SIZE);
+        byte[] sealed = eax.encrypt(nonce, null, bytes(100), 0, 100);
+        readAll(new EAXInputStream(new ByteArrayInputStream(sealed), eax, nonce, null));
+        assertTrue(CipherMetrics.ENCRYPT_BYTES.sum() - encrypted >= 100);
+        assertTrue(CipherMetrics.DECRYPT_BYTES.sum() - decrypted >= 100);
+    }
+
+    private void assertRejected(byte[] nonce, byte[] header, byte[] sealed) {
+        try {
+            eax.decrypt(nonce, header, sealed, 0, sealed.length);
+            fail("Tampered message was accepted.");
+        } catch (AEADBadTagException expected) {
+            // Rejected, as it should be
+        }
+    }
+
+    private static IOException assertBadTag(InputStream in) {
+        try {
+            readAll(in);
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof AEADBadTagException);
+            return e;
+        }
+        fail("Bad stream was read to the end.");
+        return null;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[13];
+        for (int n; (n = in.read(chunk)) >= 0;) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] bytes(int len) {
+        byte[] b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+
+    private static byte[] flip(byte[] b, int bit) {
+        byte[] copy = b.clone();
+        copy[bit / 8] ^= (byte) (0x80 >>> (bit % 8));
+        return copy;
+    }
+
+    /**
+     * Byte-oriented EAX straight from the specification, sharing nothing with
+     * {@link EAXMode} but the block function.
+     */
+    private static final class Reference {
+
+        private final int[] keys;
+
+        Reference(int[] keys) {
+            this.keys = keys;
+        }
+
+        byte[] encrypt(byte[] nonce, byte[] header, byte[] data) {
+            byte[] n = omac(0, nonce);
+            byte[] h = omac(1, header == null ? new byte[0] : header);
+            byte[] counter = n.clone();
+            byte[] out = Arrays.copyOf(data, data.length + 8);
+            for (int i = 0; i < data.length; i += 8) {
+                byte[] stream = block(counter);
+                for (int j = 0; j < 8 && i + j < data.length; j++) {
+                    out[i + j] ^= stream[j];
+                }
+                for (int j = 7; j >= 0 && ++counter[j] == 0; j--) {
+                    // Carry into the next byte
+                }
+            }
+            byte[] c = omac(2, Arrays.copyOf(out, data.length));
+            for (int j = 0; j < 8; j++) {
+                out[data.length + j] = (byte) (n[j] ^ h[j] ^ c[j]);
+            }
+            return out;
+        }
+
+        /**
+         * OMAC over [t]_8 || message: the tweak is a whole zero block with t in its last byte.
+         */
+        private byte[] omac(int tweak, byte[] message) {
+            byte[] m = new byte[8 + message.length];
+            m[7] = (byte) tweak;
+            System.arraycopy(message, 0, m, 8, message.length);
+            byte[] b = twice(block(new byte[8]));
+            byte[] p = twice(b);
+            byte[] x = new byte[8];
+            int blocks = (m.length + 7) / 8;
+            for (int i = 0; i < blocks; i++) {
+                byte[] in = new byte[8];
+                int len = Math.min(8, m.length - i * 8);
+                System.arraycopy(m, i * 8, in, 0, len);
+                if (i == blocks - 1) {
+                    if (len == 8) {
+                        xor(in, b);
+                    } else {
+                        in[len] = (byte) 0x80;
+                        xor(in, p);
+                    }
+                }
+                xor(in, x);
+                x = block(in);
+            }
+            return x;
+        }
+
+        private static byte[] twice(byte[] v) {
+            byte[] out = new byte[8];
+            for (int i = 0; i < 8; i++) {
+                out[i] = (byte) (v[i] << 1 | (i < 7 ? (v[i + 1] & 0xff) >>> 7 : 0));
+            }
+            if ((v[0] & 0x80) != 0) {
+                out[7] ^= 0x1B;
+            }
+            return out;
+        }
+
+        private static void xor(byte[] a, byte[] b) {
+            for (int i = 0; i < 8; i++) {
+                a[i] ^= b[i];
+            }
+        }
+
+        private byte[] block(byte[] in) {
+            long x = 0;
+            for (byte b : in) {
+                x = x << 8 | (b & 0xff);
+            }
+            x = IDEA.idea(x, keys);
+            byte[] out = new byte[8];
+            for (int i = 7; i >= 0; i--, x >>>= 8) {
+                out[i] = (byte) x;
+            }
+            return out;
+        }
+    }
+}
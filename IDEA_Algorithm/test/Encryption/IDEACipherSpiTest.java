@@ -0,0 +1,142 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * The JCA cipher's buffering: partial blocks, the block held back for the
+ * padding check, in-place updates and short output buffers.
+ *
+ * @author User
+ */
+public class IDEACipherSpiTest {
+
+    private static final byte[] KEY = "fedcba9876543210".getBytes();
+    private static final SecretKeySpec SECRET = new SecretKeySpec(KEY, "IDEA");
+    private static final IvParameterSpec IV = new IvParameterSpec(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void ecbMatchesEncryptBytes() throws Exception {
+        IDEA cipher = new IDEA(new IDEAKeySchedule(KEY));
+        Cipher jca = cipher("IDEA/ECB/PKCS5Padding", Cipher.ENCRYPT_MODE);
+        for (int len = 0; len <= 100; len++) {
+            byte[] data = bytes(len);
+            assertArrayEquals("length " + len, cipher.encryptBytes(data, 0, len), jca.doFinal(data));
+        }
+    }
+
+    @Test
+    public void piecewiseUpdatesHoldBackThePaddingBlock() throws Exception {
+        for (String transformation : new String[]{"IDEA/ECB/PKCS5Padding", "IDEA/CBC/PKCS5Padding"}) {
+            byte[] data = bytes(61);
+            byte[] sealed = cipher(transformation, Cipher.ENCRYPT_MODE).doFinal(data);
+            Cipher decrypt = cipher(transformation, Cipher.DECRYPT_MODE);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int off = 0; off < sealed.length;) {
+                int n = Math.min(sealed.length - off, 1 + random.nextInt(11));
+                byte[] part = decrypt.update(sealed, off, n);
+                off += n;
+                if (part != null) {
+                    out.write(part);
+                }
+                // The last whole block stays inside until doFinal, where its padding is checked
+                assertEquals(transformation, Math.max(0, (off - 1) / 8 * 8), out.size());
+            }
+            out.write(decrypt.doFinal());
+            assertArrayEquals(transformation, data, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void overlappingInPlaceUpdates() throws Exception {
+        for (String transformation : new String[]{"IDEA/ECB/NoPadding", "IDEA/CBC/NoPadding", "IDEA/CTR/NoPadding"}) {
+            byte[] data = bytes(256);
+            byte[] expected = cipher(transformation, Cipher.ENCRYPT_MODE).doFinal(data);
+            for (int shift : new int[]{-8, -3, 3, 8}) {
+                byte[] buffer = new byte[data.length + 16];
+                int inOff = 8;
+                System.arraycopy(data, 0, buffer, inOff, data.length);
+                Cipher c = cipher(transformation, Cipher.ENCRYPT_MODE);
+                int n = c.update(buffer, inOff, data.length, buffer, inOff + shift);
+                n += c.doFinal(buffer, inOff + shift + n);
+                assertEquals(data.length, n);
+                assertArrayEquals(transformation + " shift " + shift, expected,
+                        Arrays.copyOfRange(buffer, inOff + shift, inOff + shift + n));
+            }
+        }
+    }
+
+    @Test
+    public void shortBufferLeavesStateIntact() throws Exception {
+        byte[] data = bytes(45);
+        byte[] expected = cipher("IDEA/CBC/PKCS5Padding", Cipher.ENCRYPT_MODE).doFinal(data);
+        Cipher c = cipher("IDEA/CBC/PKCS5Padding", Cipher.ENCRYPT_MODE);
+        byte[] out = new byte[expected.length];
+        int n = c.update(data, 0, 5, out, 0); // Buffered, nothing out yet
+        try {
+            c.update(data, 5, 30, new byte[8], 0);
+            fail("Short update buffer accepted.");
+        } catch (ShortBufferException expectedFailure) {
+            // The 5 buffered bytes and the chaining value must be unchanged
+        }
+        n += c.update(data, 5, 30, out, n);
+        try {
+            c.doFinal(data, 35, 10, new byte[8], 0);
+            fail("Short doFinal buffer accepted.");
+        } catch (ShortBufferException expectedFailure) {
+            // Still nothing consumed
+        }
+        n += c.doFinal(data, 35, 10, out, n);
+        assertEquals(expected.length, n);
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    public void keysStayOutOfTheSharedCache() throws Exception {
+        long misses = KeyScheduleCache.shared().missCount();
+        long hits = KeyScheduleCache.shared().hitCount();
+        Cipher c = Cipher.getInstance("IDEA/ECB/PKCS5Padding", new IDEAProvider());
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(bytes(16), "IDEA"));
+        assertEquals(misses, KeyScheduleCache.shared().missCount());
+        assertEquals(hits, KeyScheduleCache.shared().hitCount());
+    }
+
+    @Test
+    public void reusableAfterDoFinal() throws Exception {
+        Cipher c = cipher("IDEA/CBC/PKCS5Padding", Cipher.ENCRYPT_MODE);
+        byte[] data = bytes(30);
+        assertArrayEquals(c.doFinal(data), c.doFinal(data));
+    }
+
+    private static Cipher cipher(String transformation, int opmode) throws Exception {
+        Cipher c = Cipher.getInstance(transformation, new IDEAProvider());
+        if (transformation.contains("/ECB/")) {
+            c.init(opmode, SECRET);
+        } else {
+            c.init(opmode, SECRET, IV);
+        }
+        return c;
+    }
+
+    private byte[] bytes(int len) {
+        byte[] b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * The request coalescer under concurrency: results must match the direct
+ * byte API whichever way a batch was triggered, and no future may be lost.
+ *
+ * @author User
+ */
+public class IDEACoalescerTest {
+
+    /**
+     * Long enough that a batch never times out while a test is looking at it.
+     */
+    private static final long LONG_WINDOW_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+    private final IDEA cipher = new IDEA(new IDEAKeySchedule("coalescerTestKey".getBytes()));
+    private final AtomicInteger executed = new AtomicInteger();
+    private final CountDownLatch executorRan = new CountDownLatch(1);
+    private final Executor countingExecutor = task -> {
+        executed.incrementAndGet();
+        ForkJoinPool.commonPool().execute(() -> {
+            task.run();
+            executorRan.countDown();
+        });
+    };
+
+    @Test
+    public void manyThreadsShareOneKey() throws Exception {
+        try (IDEACoalescer coalescer = new IDEACoalescer(500, 4096, null)) {
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                Random random = new Random(t);
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 100; i++) {
+                            byte[] data = bytes(random, random.nextInt(i % 10 == 0 ? 5000 : 100));
+                            byte[] sealed = coalescer.encrypt(cipher, data, 0, data.length).get(30, TimeUnit.SECONDS);
+                            assertArrayEquals(cipher.encryptBytes(data, 0, data.length), sealed);
+                            assertArrayEquals(data, coalescer.decrypt(cipher, sealed, 0, sealed.length).get(30, TimeUnit.SECONDS));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(String.valueOf(failures), failures.isEmpty());
+        }
+    }
+
+    @Test
+    public void capTriggersABatchOnTheFillingThread() throws Exception {
+        try (IDEACoalescer coalescer = new IDEACoalescer(LONG_WINDOW_MICROS, 64, countingExecutor)) {
+            ForkJoinPool.commonPool().awaitQuiescence(30, TimeUnit.SECONDS); // Let other tests' batches finish counting
+            long batches = CipherMetrics.COALESCED_BATCHES.sum();
+            long operations = CipherMetrics.COALESCED_OPERATIONS.sum();
+            Random random = new Random(1);
+            byte[][] data = {bytes(random, 24), bytes(random, 24), bytes(random, 24)};
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            for (byte[] d : data) {
+                futures.add(coalescer.encrypt(cipher, d, 0, d.length));
+            }
+            // 72 bytes reach the cap: the third submit ran the batch before returning
+            for (int i = 0; i < data.length; i++) {
+                assertTrue(futures.get(i).isDone());
+                assertArrayEquals(cipher.encryptBytes(data[i], 0, data[i].length), futures.get(i).get());
+            }
+            assertEquals(batches + 1, CipherMetrics.COALESCED_BATCHES.sum());
+            assertEquals(operations + 3, CipherMetrics.COALESCED_OPERATIONS.sum());
+            assertEquals(0, executed.get());
+        }
+    }
+
+    @Test
+    public void windowTriggersABatchOnTheExecutor() throws Exception {
+        try (IDEACoalescer coalescer = new IDEACoalescer(TimeUnit.MILLISECONDS.toMicros(300), 1 << 20, countingExecutor)) {
+            ForkJoinPool.commonPool().awaitQuiescence(30, TimeUnit.SECONDS); // Let other tests' batches finish counting
+            long batches = CipherMetrics.COALESCED_BATCHES.sum();
+            long operations = CipherMetrics.COALESCED_OPERATIONS.sum();
+            Random random = new Random(2);
+            byte[][] data = {bytes(random, 5), bytes(random, 8), bytes(random, 30)};
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            for (byte[] d : data) {
+                futures.add(coalescer.encrypt(cipher, d, 0, d.length));
+            }
+            assertFalse(futures.get(0).isDone()); // Waiting for the window
+            for (int i = 0; i < data.length; i++) {
+                assertArrayEquals(cipher.encryptBytes(data[i], 0, data[i].length), futures.get(i).get(30, TimeUnit.SECONDS));
+            }
+            assertTrue(executorRan.await(30, TimeUnit.SECONDS)); // The metrics are counted after the futures complete
+            assertEquals(batches + 1, CipherMetrics.COALESCED_BATCHES.sum());
+            assertEquals(operations + 3, CipherMetrics.COALESCED_OPERATIONS.sum());
+            assertEquals(1, executed.get());
+        }
+    }
+
+    @Test
+    public void closeRacingSubmitLosesNoMessage() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            IDEACoalescer coalescer = new IDEACoalescer(LONG_WINDOW_MICROS, 1 << 20, null);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            List<List<CompletableFuture<byte[]>>> futures = new ArrayList<>();
+            List<List<byte[]>> inputs = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Random random = new Random(round * 4 + t);
+                List<CompletableFuture<byte[]>> mine = new ArrayList<>();
+                List<byte[]> data = new ArrayList<>();
+                futures.add(mine);
+                inputs.add(data);
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        byte[] d = bytes(random, random.nextInt(40));
+                        data.add(d);
+                        mine.add(coalescer.encrypt(cipher, d, 0, d.length));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            Thread.yield();
+            coalescer.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // The window is far away: every message ran in close() or, after it, straight away
+            for (int t = 0; t < threads.size(); t++) {
+                for (int i = 0; i < inputs.get(t).size(); i++) {
+                    byte[] d = inputs.get(t).get(i);
+                    CompletableFuture<byte[]> future = futures.get(t).get(i);
+                    assertTrue("round " + round + ", message " + i + " was lost", future.isDone());
+                    assertArrayEquals(cipher.encryptBytes(d, 0, d.length), future.get());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void badPaddingFailsOnlyItsOwnFuture() throws Exception {
+        Random random = new Random(4);
+        byte[] first = bytes(random, 13);
+        byte[] last = bytes(random, 16);
+        byte[] firstSealed = cipher.encryptBytes(first, 0, first.length);
+        byte[] lastSealed = cipher.encryptBytes(last, 0, last.length);
+        byte[] badSealed = new byte[16]; // Decrypts to a last byte of 0, never valid padding
+        cipher.encryptBlocks(badSealed, 0, badSealed.length, badSealed, 0);
+
+        CompletableFuture<byte[]> good1;
+        CompletableFuture<byte[]> bad;
+        CompletableFuture<byte[]> good2;
+        try (IDEACoalescer coalescer = new IDEACoalescer(LONG_WINDOW_MICROS, 1 << 20, null)) {
+            good1 = coalescer.decrypt(cipher, firstSealed, 0, firstSealed.length);
+            bad = coalescer.decrypt(cipher, badSealed, 0, badSealed.length);
+            good2 = coalescer.decrypt(cipher, lastSealed, 0, lastSealed.length);
+        } // close() runs the three as one batch
+        assertArrayEquals(first, good1.get());
+        assertArrayEquals(last, good2.get());
+        try {
+            bad.get();
+            fail("Bad padding accepted.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    private static byte[] bytes(Random random, int len) {
+        byte[] b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Exhaustive equivalence of the fast kernel with the reference one, over
+ * every 16-bit operand. The reference may return 0x10000 where the fast
+ * kernel returns 0 (both mean 2^16), so results are compared in 16 bits.
+ *
+ * @author User
+ */
+public class IDEAKernelTest {
+
+    @Test
+    public void mulFastMatchesReferenceForAllOperands() {
+        for (int a = 0; a < 0x10000; a++) {
+            for (int b = 0; b < 0x10000; b++) {
+                int fast = IDEAKernel.mulFast(a, b);
+                int reference = IDEAKernel.mulReference(a, b) & 0xffff;
+                if (fast != reference) {
+                    fail("mulFast(" + a + ", " + b + ") = " + fast + ", reference " + reference);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mulinvFastMatchesReferenceForAllOperands() {
+        for (int x = 0; x < 0x10000; x++) {
+            int fast = IDEAKernel.mulinvFast(x);
+            int reference = IDEAKernel.mulinvReference(x) & 0xffff;
+            if (fast != reference) {
+                fail("mulinvFast(" + x + ") = " + fast + ", reference " + reference);
+            }
+        }
+    }
+
+    @Test
+    public void mulinvFastIsAnInverse() {
+        for (int x = 0; x < 0x10000; x++) {
+            if (IDEAKernel.mulFast(x, IDEAKernel.mulinvFast(x)) != 1) {
+                fail("mulinvFast(" + x + ") is not an inverse");
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * IDEAOutputStream and IDEAInputStream against the byte API.
+ *
+ * @author User
+ */
+public class IDEAStreamTest {
+
+    private final IDEA cipher = new IDEA("isTheCryptidWhaleReallyHere");
+    private final Random random = new Random(7);
+
+    @Test
+    public void streamsMatchByteApi() throws IOException {
+        for (int bufferSize : new int[]{16, 24, 8192}) {
+            for (int len : new int[]{0, 1, 7, 8, 9, 100, 20000}) {
+                byte[] data = new byte[len];
+                random.nextBytes(data);
+                ByteArrayOutputStream sink = new ByteArrayOutputStream();
+                try (IDEAOutputStream out = new IDEAOutputStream(sink, cipher, bufferSize)) {
+                    out.write(data);
+                }
+                byte[] sealed = cipher.encryptBytes(data, 0, len);
+                assertArrayEquals(sealed, sink.toByteArray());
+                InputStream in = new IDEAInputStream(new ByteArrayInputStream(sealed), cipher, bufferSize);
+                assertArrayEquals(data, readAll(in));
+            }
+        }
+    }
+
+    @Test
+    public void badPaddingKeepsFailing() throws IOException {
+        byte[] sealed = cipher.encryptBytes(new byte[40], 0, 40);
+        sealed[sealed.length - 1] ^= 1; // Garbles the whole last block, padding included
+        InputStream in = new IDEAInputStream(new ByteArrayInputStream(sealed), cipher);
+        IOException first = null;
+        try {
+            readAll(in);
+            fail("Bad padding was accepted.");
+        } catch (IOException e) {
+            first = e;
+        }
+        for (int i = 0; i < 3; i++) {
+            try {
+                in.read();
+                fail("Read after a failed padding check returned normally.");
+            } catch (IOException e) {
+                assertSame(first, e);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedStreamFails() throws IOException {
+        byte[] sealed = cipher.encryptBytes(new byte[40], 0, 40);
+        readAll(new IDEAInputStream(new ByteArrayInputStream(sealed, 0, sealed.length - 3), cipher));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[13];
+        for (int n; (n = in.read(chunk)) >= 0;) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * The packed tenant key store against one {@link IDEA} per key: slot and
+ * slab arithmetic, the 16-bit packing of the subkeys, and readers racing
+ * writers.
+ *
+ * @author User
+ */
+public class TenantKeyStoreTest {
+
+    private static final int SLAB = TenantKeyStore.SLAB_TENANTS;
+    private static final int[] TENANTS = {0, 1, 63, 64, SLAB - 1, SLAB, SLAB + 1, 2 * SLAB - 1, 2 * SLAB, 3 * SLAB + 7};
+
+    private final Random random = new Random(19);
+
+    @Test
+    public void matchesIdeaAcrossSlabBoundaries() {
+        TenantKeyStore store = new TenantKeyStore(4 * SLAB);
+        for (int tenant : TENANTS) {
+            store.put(tenant, key(tenant));
+        }
+        assertEquals(TENANTS.length, store.size());
+        for (int tenant : TENANTS) {
+            IDEA cipher = new IDEA(key(tenant));
+            for (int len : new int[]{0, 1, 8, 15, 100}) {
+                byte[] data = bytes(len);
+                byte[] sealed = store.encryptBytes(tenant, data, 0, len);
+                assertArrayEquals("tenant " + tenant, cipher.encryptBytes(data, 0, len), sealed);
+                assertArrayEquals("tenant " + tenant, data, store.decryptBytes(tenant, sealed, 0, sealed.length));
+                assertArrayEquals("tenant " + tenant, data, cipher.decryptBytes(sealed, 0, sealed.length));
+            }
+        }
+        assertFalse(store.contains(2));
+        assertFalse(store.contains(SLAB + 2));
+    }
+
+    @Test
+    public void subkeysAboveShortRangeSurvivePacking() {
+        // Stored as short, these come back negative unless widened without sign extension
+        IDEA cipher = new IDEA(key(SLAB));
+        boolean wide = false;
+        for (int k : cipher.getKeySchedule().decryptKeys()) {
+            wide |= k > Short.MAX_VALUE;
+        }
+        assertTrue("Key does not exercise the sign bit.", wide);
+        TenantKeyStore store = new TenantKeyStore(2 * SLAB);
+        store.put(SLAB, key(SLAB));
+        byte[] blocks = bytes(64);
+        byte[] expected = blocks.clone();
+        cipher.decryptBlocks(expected, 0, expected.length, expected, 0);
+        byte[] actual = new byte[blocks.length];
+        store.decryptBlocks(SLAB, blocks, 0, blocks.length, actual, 0);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void removedTenantHasNoKey() {
+        TenantKeyStore store = new TenantKeyStore(2 * SLAB);
+        store.put(SLAB + 1, key(1));
+        assertTrue(store.remove(SLAB + 1));
+        assertFalse(store.remove(SLAB + 1));
+        assertFalse(store.contains(SLAB + 1));
+        assertEquals(0, store.size());
+        try {
+            store.encryptBytes(SLAB + 1, bytes(8), 0, 8);
+            fail("Removed tenant still encrypts.");
+        } catch (IllegalArgumentException expected) {
+            // No key
+        }
+    }
+
+    @Test
+    public void negativeLengthIsARangeErrorNotAPaddingError() {
+        TenantKeyStore store = new TenantKeyStore(1);
+        store.put(0, key(0));
+        long invalid = CipherMetrics.INVALID_PADDING.sum();
+        try {
+            store.decryptBytes(0, new byte[16], 0, -8);
+            fail("Negative length accepted.");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Byte range outside the array.", expected.getMessage());
+        }
+        assertEquals(invalid, CipherMetrics.INVALID_PADDING.sum());
+    }
+
+    @Test
+    public void readersRacingWritersSeeWholeKeys() throws Exception {
+        int tenant = SLAB + 5;
+        TenantKeyStore store = new TenantKeyStore(2 * SLAB);
+        String keyA = key(1);
+        String keyB = key(2);
+        byte[] data = bytes(64);
+        byte[] sealedA = new IDEA(keyA).encryptBytes(data, 0, data.length);
+        byte[] sealedB = new IDEA(keyB).encryptBytes(data, 0, data.length);
+        store.put(tenant, keyA);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        byte[] sealed;
+                        try {
+                            sealed = store.encryptBytes(tenant, data, 0, data.length);
+                        } catch (IllegalArgumentException removed) {
+                            continue;
+                        }
+                        // A torn read would mix the two schedules and match neither
+                        assertTrue(Arrays.equals(sealedA, sealed) || Arrays.equals(sealedB, sealed));
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (int i = 0; i < 20000; i++) {
+            switch (i % 3) {
+                case 0:
+                    store.put(tenant, keyB);
+                    break;
+                case 1:
+                    store.remove(tenant);
+                    break;
+                default:
+                    store.put(tenant, keyA);
+                    break;
+            }
+            store.put(tenant + SLAB / 2, key(i)); // Other slots in the same slab change too
+            if (i % 1000 == 0) {
+                Thread.yield();
+            }
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(String.valueOf(failures), failures.isEmpty());
+    }
+
+    private static String key(int n) {
+        return "tenant-key-" + n;
+    }
+
+    private byte[] bytes(int len) {
+        byte[] b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package Sidecar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import Encryption.TenantKeyStore;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The sidecar over loopback: a server on an ephemeral port, driven through
+ * {@link SidecarClient} and through raw sockets where the test needs to
+ * control the bytes on the wire.
+ *
+ * @author User
+ */
+public class SidecarTest {
+
+    private static final int KEY_ID = 1;
+    private static final int OTHER_KEY_ID = 2;
+    private static final int MISSING_KEY_ID = 3;
+
+    private final TenantKeyStore keys = new TenantKeyStore(4);
+    private final Random random = new Random(5);
+    private SidecarServer server;
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        keys.put(KEY_ID, "isTheCryptidWhaleReallyHere");
+        keys.put(OTHER_KEY_ID, "anotherKey");
+        server = new SidecarServer(keys, 2);
+        port = server.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void roundTripsMatchTheKeyStore() throws IOException {
+        try (SidecarClient client = new SidecarClient("127.0.0.1", port)) {
+            for (int len : new int[]{0, 1, 7, 8, 9, 100, SidecarServer.BUFFER_SIZE - 1, SidecarServer.BUFFER_SIZE + 3, 300000}) {
+                byte[] data = bytes(len);
+                byte[] sealed = client.encrypt(KEY_ID, data);
+                assertArrayEquals("length " + len, keys.encryptBytes(KEY_ID, data, 0, len), sealed);
+                assertArrayEquals("length " + len, data, client.decrypt(KEY_ID, sealed));
+            }
+        }
+    }
+
+    @Test
+    public void framesSplitAndCoalescedOnTheWire() throws IOException {
+        byte[] first = bytes(20);
+        byte[] second = bytes(3);
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(wire);
+        writeRequest(frames, 10, KEY_ID, SidecarProtocol.OP_ENCRYPT, first);
+        writeRequest(frames, 11, OTHER_KEY_ID, SidecarProtocol.OP_ENCRYPT, second);
+        byte[] bytes = wire.toByteArray();
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            // The first frame a byte at a time, then the rest of it and all of the second in one write
+            for (int i = 0; i < 7; i++) {
+                out.write(bytes[i]);
+                out.flush();
+            }
+            out.write(bytes, 7, bytes.length - 7);
+            out.flush();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertResponse(in, 10, SidecarProtocol.STATUS_OK, keys.encryptBytes(KEY_ID, first, 0, first.length));
+            assertResponse(in, 11, SidecarProtocol.STATUS_OK, keys.encryptBytes(OTHER_KEY_ID, second, 0, second.length));
+        }
+    }
+
+    @Test
+    public void pipelinedResponsesKeepRequestOrder() throws Exception {
+        try (SidecarClient client = new SidecarClient("127.0.0.1", port, 64)) {
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        pipeline(client, new Random(seed));
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(String.valueOf(failures), failures.isEmpty());
+        }
+    }
+
+    @Test
+    public void errorStatusesKeepTheConnectionUsable() throws IOException {
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            writeRequest(out, 1, MISSING_KEY_ID, SidecarProtocol.OP_ENCRYPT, bytes(5));
+            writeRequest(out, 2, KEY_ID, SidecarProtocol.OP_DECRYPT, bytes(5)); // Not a whole block
+            writeRequest(out, 3, KEY_ID, SidecarProtocol.OP_DECRYPT, bytes(0));
+            writeRequest(out, 4, KEY_ID, (byte) 9, bytes(8));
+            byte[] data = bytes(8);
+            writeRequest(out, 5, KEY_ID, SidecarProtocol.OP_ENCRYPT, data);
+            out.flush();
+            assertStatus(in, 1, SidecarProtocol.STATUS_UNKNOWN_KEY);
+            assertStatus(in, 2, SidecarProtocol.STATUS_BAD_REQUEST);
+            assertStatus(in, 3, SidecarProtocol.STATUS_BAD_REQUEST);
+            assertStatus(in, 4, SidecarProtocol.STATUS_BAD_REQUEST);
+            assertResponse(in, 5, SidecarProtocol.STATUS_OK, keys.encryptBytes(KEY_ID, data, 0, data.length));
+        }
+        try (SidecarClient client = new SidecarClient("127.0.0.1", port)) {
+            try {
+                client.encrypt(MISSING_KEY_ID, bytes(3));
+                fail("Unknown key accepted.");
+            } catch (IllegalArgumentException expected) {
+                // Rejected by the server; the client is still usable
+            }
+            assertArrayEquals(bytes(0), client.decrypt(KEY_ID, client.encrypt(KEY_ID, bytes(0))));
+        }
+    }
+
+    @Test
+    public void badFrameLengthClosesTheConnection() throws IOException {
+        for (int length : new int[]{SidecarProtocol.REQUEST_HEADER_SIZE - 1, -1, SidecarProtocol.MAX_FRAME_SIZE + 1}) {
+            try (Socket socket = connect()) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(length);
+                out.write(new byte[SidecarProtocol.REQUEST_HEADER_SIZE]);
+                out.flush();
+                assertEquals("length " + length, -1, socket.getInputStream().read());
+            }
+        }
+    }
+
+    @Test
+    public void unreadResponsesPauseReading() throws Exception {
+        int requests = 2000;
+        byte[] data = bytes(60000); // 120 MB in all: far more than the high-water mark plus socket buffers
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        writeRequest(out, i, KEY_ID, SidecarProtocol.OP_ENCRYPT, data);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // The read side reports it
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+            writer.join(2000);
+            assertTrue("Server kept reading although nobody read its responses.", writer.isAlive());
+
+            // Reading drains the backlog under the low-water mark, and the server reads again
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] expected = keys.encryptBytes(KEY_ID, data, 0, data.length);
+            for (int i = 0; i < requests; i++) {
+                assertResponse(in, i, SidecarProtocol.STATUS_OK, expected);
+            }
+            writer.join();
+        }
+    }
+
+    private void pipeline(SidecarClient client, Random random) {
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        List<byte[]> inputs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            byte[] data = new byte[random.nextInt(200)];
+            random.nextBytes(data);
+            inputs.add(data);
+            futures.add(client.encryptAsync(KEY_ID + (i & 1), data, 0, data.length));
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            byte[] data = inputs.get(i);
+            assertArrayEquals("request " + i, keys.encryptBytes(KEY_ID + (i & 1), data, 0, data.length), futures.get(i).join());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(30000);
+        return socket;
+    }
+
+    private static void writeRequest(DataOutputStream out, int requestId, int keyId, byte op, byte[] payload) throws IOException {
+        out.writeInt(SidecarProtocol.REQUEST_HEADER_SIZE + payload.length);
+        out.writeInt(requestId);
+        out.writeInt(keyId);
+        out.writeByte(op);
+        out.write(payload);
+    }
+
+    private static byte[] readResponse(DataInputStream in, int requestId, byte status) throws IOException {
+        int length = in.readInt();
+        assertEquals(requestId, in.readInt());
+        assertEquals(status, in.readByte());
+        byte[] payload = new byte[length - SidecarProtocol.RESPONSE_HEADER_SIZE];
+        in.readFully(payload);
+        return payload;
+    }
+
+    private static void assertResponse(DataInputStream in, int requestId, byte status, byte[] payload) throws IOException {
+        assertArrayEquals(payload, readResponse(in, requestId, status));
+    }
+
+    private static void assertStatus(DataInputStream in, int requestId, byte status) throws IOException {
+        assertTrue(readResponse(in, requestId, status).length > 0); // The error message
+    }
+
+    private byte[] bytes(int len) {
+        byte[] b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+}